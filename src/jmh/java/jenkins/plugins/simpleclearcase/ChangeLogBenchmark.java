@@ -0,0 +1,119 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Writing the changelog at the end of checkout, and reading it back for the changes page, in 
+ * each format and compression
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ChangeLogBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int events;
+
+    @Param({"xml", "binary"})
+    public String format;
+
+    @Param({"none", "deflate"})
+    public String compression;
+
+    private List<SimpleClearCaseChangeLogEntry> entries;
+    private SimpleClearCaseChangeLogParser parser;
+    private File written;
+    private File read;
+
+    @Setup
+    public void setUp() throws IOException, XMLStreamException {
+        entries = Histories.parse(Histories.lshistoryOutput(events));
+        parser  = new SimpleClearCaseChangeLogParser();
+        written = File.createTempFile("changelog", ".bench");
+        read    = File.createTempFile("changelog", ".bench");
+        write(read);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ChangeLogIndex.indexFileOf(read).delete();
+        read.delete();
+        written.delete();
+    }
+
+    @Benchmark
+    public long writeChangeLog() throws IOException, XMLStreamException {
+        write(written);
+        return written.length();
+    }
+
+    @Benchmark
+    public List<SimpleClearCaseChangeLogEntry> readChangeLog() throws Exception {
+        return parser.readChangeLog(read);
+    }
+
+    /**
+     * Writes entries as checkout does, an xml changelog without its index as that needs a build
+     */
+    private void write(File file) throws IOException, XMLStreamException {
+        boolean compress = compression.equals("deflate");
+
+        if (format.equals("binary")) {
+            BinaryChangeLog.write(file, entries, compress);
+            return;
+        }
+
+        OutputStream out = ChangeLogFile.create(file, compress);
+        try {
+            parser.writeChangeLog(out, entries);
+        } finally {
+            out.close();
+        }
+    }
+}
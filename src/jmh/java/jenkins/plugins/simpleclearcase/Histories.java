@@ -0,0 +1,87 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import hudson.model.TaskListener;
+
+/**
+ * Synthetic lshistory output and entries for the benchmarks, made up by FakeClearTool such that 
+ * the benchmarks and ClearToolTest see the same kind of history
+ */
+final class Histories {
+    static final int LOAD_RULES = 8;
+
+    private Histories() {
+    }
+
+    /**
+     * @param count the number of load rules
+     */
+    static List<String> loadRules(int count) {
+        List<String> ret = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++) {
+            ret.add("/vobs/bench/component" + i);
+        }
+        return ret;
+    }
+
+    /**
+     * @param events in total, spread evenly over LOAD_RULES load rules
+     * @return the lshistory output of the load rules, as ClearTool formats it
+     */
+    static byte[] lshistoryOutput(int events) throws IOException {
+        FakeClearTool fake = new FakeClearTool().vobs("/vobs/bench").entries(events / LOAD_RULES).step(60);
+        ByteArrayOutputStream ret = new ByteArrayOutputStream(events * 128);
+
+        for (String loadRule : loadRules(LOAD_RULES)) {
+            for (FakeClearTool.Event e : fake.history(loadRule)) {
+                ret.write(e.format(SimpleClearCaseChangeLogEntry.LSHISTORY_FORMATTING).getBytes("UTF-8"));
+            }
+        }
+        return ret.toByteArray();
+    }
+
+    /**
+     * @param output lshistory output
+     * @return the entries parsed from output
+     */
+    static List<SimpleClearCaseChangeLogEntry> parse(byte[] output) throws IOException {
+        LshistoryParser.Collector collector = new LshistoryParser.Collector();
+        LshistoryParser parser = new LshistoryParser(false, TaskListener.NULL, collector);
+
+        // closing finishes the parser
+        OutputStream out = parser.asOutputStream();
+        out.write(output);
+        out.close();
+        return collector.getEntries();
+    }
+}
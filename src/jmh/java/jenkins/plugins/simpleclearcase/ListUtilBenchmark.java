@@ -0,0 +1,86 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jenkins.plugins.simpleclearcase.util.ListUtil;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The latest commit date of each load rule, and the removal of the entries of the previous 
+ * build, which checkout does on every changelog
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ListUtilBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int events;
+
+    private List<SimpleClearCaseChangeLogEntry> entries;
+    private List<String> loadRules;
+    private LoadRuleDateMap previous;
+
+    @Setup
+    public void setUp() throws IOException {
+        entries   = Histories.parse(Histories.lshistoryOutput(events));
+        loadRules = Histories.loadRules(Histories.LOAD_RULES);
+        previous  = ListUtil.getLatestCommitDates(entries, loadRules);
+    }
+
+    @Benchmark
+    public LoadRuleDateMap getLatestCommitDates() {
+        return ListUtil.getLatestCommitDates(entries, loadRules);
+    }
+
+    /**
+     * Includes a copy of the entries, as removeEntries changes the list
+     */
+    @Benchmark
+    public List<SimpleClearCaseChangeLogEntry> removeEntries() {
+        List<SimpleClearCaseChangeLogEntry> copy = new ArrayList<SimpleClearCaseChangeLogEntry>(entries);
+        ListUtil.removeEntries(copy, previous, loadRules);
+        return copy;
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jenkins.plugins.simpleclearcase;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The comparison of every poll, between the baseline and the remote dates of the load rules
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadRuleDateMapBenchmark {
+    @Param({"10", "100", "1000"})
+    public int loadRules;
+
+    private LoadRuleDateMap baseline;
+    private LoadRuleDateMap same;
+    private LoadRuleDateMap lastNewer;
+
+    @Setup
+    public void setUp() {
+        List<String> rules = Histories.loadRules(loadRules);
+        LoadRuleDateMap.Builder b = new LoadRuleDateMap.Builder();
+        for (int i = 0; i < rules.size(); i++) {
+            b.put(rules.get(i), 1000000L * i);
+        }
+        baseline  = b.build();
+        same      = b.build();
+        // the worst case, every load rule is compared before the newer one is found
+        lastNewer = b.put(rules.get(rules.size() - 1), Long.MAX_VALUE).build();
+    }
+
+    @Benchmark
+    public boolean isBeforeNoChanges() {
+        return baseline.isBefore(same);
+    }
+
+    @Benchmark
+    public boolean isBeforeLastChanged() {
+        return baseline.isBefore(lastNewer);
+    }
+}
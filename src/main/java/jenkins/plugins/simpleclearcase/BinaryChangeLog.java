@@ -0,0 +1,402 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary changelog. Dates are epoch millis, strings are length prefixed UTF-8, and users, 
+ * operations, event descriptions and the directories of paths are numbers into a dictionary. 
+ * 
+ * The file holds MAGIC and VERSION, the entries, the dictionary, the offset of every entry and 
+ * last a trailer with where the dictionary and the offsets start, the number of entries and MAGIC 
+ * again. The dictionary is written last such that entries can be written as they come, and the 
+ * trailer has a fixed size such that it can be found from the end of the file. Offsets are into the 
+ * uncompressed changelog, see {@link ChangeLogFile}.
+ */
+public class BinaryChangeLog implements ChangeLogStore {
+    // SCCB, simple clearcase changelog binary
+    public static final int MAGIC   = 0x53434342;
+    private static final int VERSION = 1;
+    private static final int TRAILER = 8 + 8 + 4 + 4;
+
+    private static final Charset UTF8       = Charset.forName("UTF-8");
+    private static final char PATH_SEPARATOR = '/';
+
+    private final ChangeLogFile data;
+    private final long dictionaryOffset;
+    private final long indexOffset;
+    private final int size;
+    // read on first use
+    private String[] dictionary;
+
+    private BinaryChangeLog(ChangeLogFile data, long dictionaryOffset, long indexOffset, int size) {
+        this.data             = data;
+        this.dictionaryOffset = dictionaryOffset;
+        this.indexOffset      = indexOffset;
+        this.size             = size;
+    }
+
+    /**
+     * @param file
+     * @return true if file starts as a binary changelog
+     * @throws IOException
+     */
+    public static boolean isBinary(File file) throws IOException {
+        ChangeLogFile data = ChangeLogFile.open(file);
+        return data.length() >= 8 + TRAILER && data.readInt(0) == MAGIC;
+    }
+
+    /**
+     * @param file a binary changelog
+     * @return the changelog, only the trailer is read
+     * @throws IOException if file isn't a complete binary changelog
+     */
+    public static BinaryChangeLog open(File file) throws IOException {
+        ChangeLogFile data = ChangeLogFile.open(file);
+        long length = data.length();
+
+        if (length < 8 + TRAILER || data.readInt(0) != MAGIC || data.readInt(4) != VERSION) {
+            throw new IOException("Not a binary changelog of version " + VERSION + ": " + file);
+        }
+
+        Reader r = new Reader(data, length - TRAILER);
+        try {
+            long dictionaryOffset = r.readLong();
+            long indexOffset      = r.readLong();
+            int size              = r.readInt();
+
+            if (r.readInt() != MAGIC || size < 0 || indexOffset + size * 8L != length - TRAILER 
+                                     || dictionaryOffset > indexOffset) {
+                throw new IOException("Binary changelog is truncated or corrupt: " + file);
+            }
+            return new BinaryChangeLog(data, dictionaryOffset, indexOffset, size);
+        } finally {
+            r.close();
+        }
+    }
+
+    /**
+     * @param file where the changelog is written
+     * @param entries to write, one at a time
+     * @param compress if true the changelog is compressed
+     * @throws IOException
+     */
+    public static void write(File file, Iterable<SimpleClearCaseChangeLogEntry> entries, boolean compress) 
+                                                                                          throws IOException {
+        Writer w = new Writer(ChangeLogFile.create(file, compress));
+
+        try {
+            w.writeInt(MAGIC);
+            w.writeInt(VERSION);
+
+            for (SimpleClearCaseChangeLogEntry e : entries) {
+                w.writeEntry(e);
+            }
+            w.finish();
+        } finally {
+            w.close();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public List<SimpleClearCaseChangeLogEntry> read(int first, int count) throws IOException {
+        if (first < 0 || count < 0 || (long) first + count > size) {
+            throw new IndexOutOfBoundsException("Entries " + first + " to " + (first + count) + " of " + size);
+        }
+
+        List<SimpleClearCaseChangeLogEntry> ret = new ArrayList<SimpleClearCaseChangeLogEntry>(count);
+        if (count == 0) {
+            return ret;
+        }
+
+        String[] dict = getDictionary();
+        Reader r = new Reader(data, offsetOf(first));
+        try {
+            for (int i = 0; i < count; i++) {
+                ret.add(r.readEntry(dict));
+            }
+        } finally {
+            r.close();
+        }
+        return ret;
+    }
+
+    private long offsetOf(int entry) throws IOException {
+        return data.readLong(indexOffset + entry * 8L);
+    }
+
+    private synchronized String[] getDictionary() throws IOException {
+        if (dictionary == null) {
+            Reader r = new Reader(data, dictionaryOffset);
+            try {
+                String[] dict = new String[r.readVarInt()];
+                for (int i = 0; i < dict.length; i++) {
+                    dict[i] = r.readString();
+                }
+                dictionary = dict;
+            } finally {
+                r.close();
+            }
+        }
+        return dictionary;
+    }
+
+    /**
+     * Writes entries and collects the dictionary and the offsets on the way
+     */
+    private static class Writer {
+        private final OutputStream out;
+        private final Map<String, Integer> ids = new HashMap<String, Integer>();
+        private final List<String> dictionary  = new ArrayList<String>();
+        private final ChangeLogIndex.Builder offsets = new ChangeLogIndex.Builder();
+        private long count;
+
+        Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        void writeEntry(SimpleClearCaseChangeLogEntry e) throws IOException {
+            offsets.add(count);
+
+            writeLong(e.getDate() != null ? e.getDate().getTime() : Long.MIN_VALUE);
+            writeId(e.getUser());
+            writeId(e.getOperation());
+            writeId(e.getEventDescription());
+            writeString(e.getVersion());
+            writeString(e.getComment());
+
+            Collection<String> paths = e.getAffectedPaths();
+            writeVarInt(paths.size());
+            for (String path : paths) {
+                // directories are shared between many paths, names seldom are
+                int split = path.lastIndexOf(PATH_SEPARATOR) + 1;
+                writeId(path.substring(0, split));
+                writeString(path.substring(split));
+            }
+        }
+
+        void finish() throws IOException {
+            long dictionaryOffset = count;
+            writeVarInt(dictionary.size());
+            for (String s : dictionary) {
+                writeString(s);
+            }
+
+            long indexOffset = count;
+            for (int i = 0; i < offsets.size(); i++) {
+                writeLong(offsets.get(i));
+            }
+
+            writeLong(dictionaryOffset);
+            writeLong(indexOffset);
+            writeInt(offsets.size());
+            writeInt(MAGIC);
+        }
+
+        void close() throws IOException {
+            out.close();
+        }
+
+        /**
+         * @param s written as 0 if null, otherwise as its position in the dictionary plus one
+         */
+        private void writeId(String s) throws IOException {
+            if (s == null) {
+                writeVarInt(0);
+                return;
+            }
+
+            Integer id = ids.get(s);
+            if (id == null) {
+                id = dictionary.size();
+                ids.put(s, id);
+                dictionary.add(s);
+            }
+            writeVarInt(id + 1);
+        }
+
+        /**
+         * @param s written as 0 if null, otherwise as the length plus one followed by the UTF-8 bytes
+         */
+        private void writeString(String s) throws IOException {
+            if (s == null) {
+                writeVarInt(0);
+                return;
+            }
+
+            byte[] b = s.getBytes(UTF8);
+            writeVarInt(b.length + 1);
+            out.write(b);
+            count += b.length;
+        }
+
+        private void writeVarInt(int v) throws IOException {
+            // seven bits at a time, the high bit tells if there is more
+            while ((v & ~0x7f) != 0) {
+                out.write((v & 0x7f) | 0x80);
+                v >>>= 7;
+                count++;
+            }
+            out.write(v);
+            count++;
+        }
+
+        void writeInt(int v) throws IOException {
+            out.write(v >>> 24);
+            out.write(v >>> 16);
+            out.write(v >>> 8);
+            out.write(v);
+            count += 4;
+        }
+
+        private void writeLong(long v) throws IOException {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+    }
+
+    /**
+     * Reads entries from an offset in a binary changelog
+     */
+    private static class Reader {
+        private final InputStream in;
+        private byte[] buffer = new byte[256];
+
+        Reader(ChangeLogFile data, long offset) throws IOException {
+            this.in = data.openAt(offset);
+        }
+
+        SimpleClearCaseChangeLogEntry readEntry(String[] dict) throws IOException {
+            long date               = readLong();
+            String user             = readId(dict);
+            String operation        = readId(dict);
+            String eventDescription = readId(dict);
+            String version          = readString();
+            String comment          = readString();
+
+            SimpleClearCaseChangeLogEntry entry = new SimpleClearCaseChangeLogEntry(
+                          date != Long.MIN_VALUE ? new Date(date) : null, user, version, eventDescription, 
+                                                                                       operation, comment);
+            int paths = readVarInt();
+            for (int i = 0; i < paths; i++) {
+                String directory = readId(dict);
+                entry.addPath(directory + readString());
+            }
+            return entry;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+
+        private String readId(String[] dict) throws IOException {
+            int id = readVarInt();
+            if (id == 0) {
+                return null;
+            }
+            if (id > dict.length) {
+                throw new IOException("Binary changelog refers to a string which doesn't exist: " + id);
+            }
+            return dict[id - 1];
+        }
+
+        String readString() throws IOException {
+            int length = readVarInt();
+            if (length == 0) {
+                return null;
+            }
+
+            length--;
+            if (buffer.length < length) {
+                buffer = new byte[Math.max(length, buffer.length * 2)];
+            }
+            readFully(buffer, length);
+            return new String(buffer, 0, length, UTF8);
+        }
+
+        int readVarInt() throws IOException {
+            int ret   = 0;
+            int shift = 0;
+            int b;
+
+            do {
+                b = read();
+                ret |= (b & 0x7f) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0 && shift < 35);
+            return ret;
+        }
+
+        long readLong() throws IOException {
+            long ret = 0;
+            for (int i = 0; i < 8; i++) {
+                ret = (ret << 8) | read();
+            }
+            return ret;
+        }
+
+        int readInt() throws IOException {
+            int ret = 0;
+            for (int i = 0; i < 4; i++) {
+                ret = (ret << 8) | read();
+            }
+            return ret;
+        }
+
+        private int read() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Binary changelog ended unexpectedly");
+            }
+            return b;
+        }
+
+        private void readFully(byte[] b, int length) throws IOException {
+            int off = 0;
+            while (off < length) {
+                int n = in.read(b, off, length - off);
+                if (n < 0) {
+                    throw new EOFException("Binary changelog ended unexpectedly");
+                }
+                off += n;
+            }
+        }
+    }
+}
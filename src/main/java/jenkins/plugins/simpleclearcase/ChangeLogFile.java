@@ -0,0 +1,410 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The bytes of a stored changelog, which might be compressed. Offsets and lengths are always of 
+ * the uncompressed changelog, such that the formats on top, and their indexes, don't know about 
+ * compression.
+ * 
+ * A compressed changelog is split into blocks of BLOCK_SIZE bytes, each deflated on its own. The 
+ * file holds MAGIC, VERSION and the block size, the blocks, the file offset of every block and last 
+ * a trailer with the uncompressed length, where the offsets start, the number of blocks and MAGIC 
+ * again. Reading from an offset only inflates from the block holding the offset, hence a page 
+ * can be read without inflating the changelog before it.
+ */
+public abstract class ChangeLogFile {
+    // SCCZ, simple clearcase changelog zipped
+    public static final int MAGIC      = 0x5343435a;
+    private static final int VERSION    = 1;
+    private static final int HEADER     = 4 + 4 + 4;
+    private static final int TRAILER    = 8 + 8 + 4 + 4;
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * @return the length of the uncompressed changelog
+     */
+    public abstract long length();
+
+    /**
+     * @param offset in the uncompressed changelog
+     * @return a stream of the uncompressed changelog from offset, must be closed
+     * @throws IOException
+     */
+    public abstract InputStream openAt(long offset) throws IOException;
+
+    /**
+     * @param file
+     * @return the changelog in file, compressed or not
+     * @throws IOException
+     */
+    public static ChangeLogFile open(File file) throws IOException {
+        if (file.length() >= HEADER + TRAILER && readInt(file) == MAGIC) {
+            return new Compressed(file);
+        }
+        return new Plain(file);
+    }
+
+    /**
+     * @param file where the changelog is written
+     * @param compress if true the changelog is compressed
+     * @return a stream which the uncompressed changelog is written to, the file is complete when 
+     *         the stream is closed
+     * @throws IOException
+     */
+    public static OutputStream create(File file, boolean compress) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+        return (compress == true) ? new CompressingOutputStream(out) : out;
+    }
+
+    /**
+     * @param offset in the uncompressed changelog
+     * @return the int at offset
+     * @throws IOException
+     */
+    public int readInt(long offset) throws IOException {
+        DataInputStream in = new DataInputStream(openAt(offset));
+        try {
+            return in.readInt();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @param offset in the uncompressed changelog
+     * @return the long at offset
+     * @throws IOException
+     */
+    public long readLong(long offset) throws IOException {
+        DataInputStream in = new DataInputStream(openAt(offset));
+        try {
+            return in.readLong();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static int readInt(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try {
+            return in.readInt();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static class Plain extends ChangeLogFile {
+        private final File file;
+
+        Plain(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public long length() {
+            return file.length();
+        }
+
+        @Override
+        public InputStream openAt(long offset) throws IOException {
+            FileInputStream fis = new FileInputStream(file);
+            fis.getChannel().position(offset);
+            return new BufferedInputStream(fis, BUFFER_SIZE);
+        }
+    }
+
+    private static class Compressed extends ChangeLogFile {
+        private final File file;
+        private final long length;
+        private final int blockSize;
+        // the file offset of every block, and where the last block ends
+        private final long[] blocks;
+
+        Compressed(File file) throws IOException {
+            this.file = file;
+
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                if (raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+                    throw new IOException("Not a compressed changelog of version " + VERSION + ": " + file);
+                }
+                blockSize = raf.readInt();
+
+                raf.seek(raf.length() - TRAILER);
+                length           = raf.readLong();
+                long tableOffset = raf.readLong();
+                int count        = raf.readInt();
+
+                if (raf.readInt() != MAGIC || blockSize <= 0 || count < 0 
+                                           || tableOffset + count * 8L != raf.length() - TRAILER) {
+                    throw new IOException("Compressed changelog is truncated or corrupt: " + file);
+                }
+
+                blocks = new long[count + 1];
+                raf.seek(tableOffset);
+                for (int i = 0; i < count; i++) {
+                    blocks[i] = raf.readLong();
+                }
+                blocks[count] = tableOffset;
+            } finally {
+                raf.close();
+            }
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public InputStream openAt(long offset) throws IOException {
+            InflatingInputStream in = new InflatingInputStream(file, blocks, (int) (offset / blockSize), 
+                                                                                                blockSize);
+            long skip = offset % blockSize;
+            while (skip > 0) {
+                long n = in.skip(skip);
+                if (n <= 0) {
+                    in.close();
+                    throw new EOFException("Offset " + offset + " is beyond the changelog " + file);
+                }
+                skip -= n;
+            }
+            return in;
+        }
+    }
+
+    /**
+     * Deflates every BLOCK_SIZE bytes on its own, the block table and trailer are written on close
+     */
+    private static class CompressingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        private final byte[] block      = new byte[BLOCK_SIZE];
+        private final byte[] deflated   = new byte[BUFFER_SIZE];
+        private final ChangeLogIndex.Builder offsets = new ChangeLogIndex.Builder();
+        private int used;
+        private long length;
+        private long position;
+        private boolean closed;
+
+        CompressingOutputStream(OutputStream out) throws IOException {
+            this.out = out;
+            writeInt(MAGIC);
+            writeInt(VERSION);
+            writeInt(BLOCK_SIZE);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (used == block.length) {
+                writeBlock();
+            }
+            block[used++] = (byte) b;
+            length++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (used == block.length) {
+                    writeBlock();
+                }
+                int n = Math.min(len, block.length - used);
+                System.arraycopy(b, off, block, used, n);
+                used   += n;
+                off    += n;
+                len    -= n;
+                length += n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed == true) {
+                return;
+            }
+            closed = true;
+
+            try {
+                if (used > 0) {
+                    writeBlock();
+                }
+
+                long tableOffset = position;
+                for (int i = 0; i < offsets.size(); i++) {
+                    writeLong(offsets.get(i));
+                }
+                writeLong(length);
+                writeLong(tableOffset);
+                writeInt(offsets.size());
+                writeInt(MAGIC);
+            } finally {
+                deflater.end();
+                out.close();
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            offsets.add(position);
+
+            deflater.reset();
+            deflater.setInput(block, 0, used);
+            deflater.finish();
+            while (deflater.finished() == false) {
+                int n = deflater.deflate(deflated);
+                out.write(deflated, 0, n);
+                position += n;
+            }
+            used = 0;
+        }
+
+        private void writeInt(int v) throws IOException {
+            out.write(v >>> 24);
+            out.write(v >>> 16);
+            out.write(v >>> 8);
+            out.write(v);
+            position += 4;
+        }
+
+        private void writeLong(long v) throws IOException {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+    }
+
+    /**
+     * Inflates one block at a time, from a given block to the last one
+     */
+    private static class InflatingInputStream extends InputStream {
+        private final RandomAccessFile raf;
+        private final long[] blocks;
+        private final Inflater inflater = new Inflater();
+        private final byte[] block;
+        private byte[] deflated = new byte[0];
+        private int next;
+        private int used;
+        private int pos;
+
+        InflatingInputStream(File file, long[] blocks, int first, int blockSize) throws IOException {
+            this.raf    = new RandomAccessFile(file, "r");
+            this.blocks = blocks;
+            this.next   = first;
+            this.block  = new byte[blockSize];
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (fill() == false) {
+                return -1;
+            }
+            return block[pos++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (fill() == false) {
+                return -1;
+            }
+            int n = Math.min(len, used - pos);
+            System.arraycopy(block, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0 || fill() == false) {
+                return 0;
+            }
+            int skipped = (int) Math.min(n, used - pos);
+            pos += skipped;
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            inflater.end();
+            raf.close();
+        }
+
+        /**
+         * @return false if there isn't anything more to read
+         */
+        private boolean fill() throws IOException {
+            if (pos < used) {
+                return true;
+            }
+            if (next >= blocks.length - 1) {
+                return false;
+            }
+
+            int size = (int) (blocks[next + 1] - blocks[next]);
+            if (deflated.length < size) {
+                deflated = new byte[size];
+            }
+            raf.seek(blocks[next]);
+            raf.readFully(deflated, 0, size);
+            next++;
+
+            inflater.reset();
+            inflater.setInput(deflated, 0, size);
+            used = 0;
+            pos  = 0;
+            try {
+                while (inflater.finished() == false && used < block.length) {
+                    int n = inflater.inflate(block, used, block.length - used);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        throw new EOFException("Compressed block ended unexpectedly in " + raf);
+                    }
+                    used += n;
+                }
+            } catch (DataFormatException e) {
+                throw new IOException("Compressed changelog is corrupt: " + e.getMessage());
+            }
+            return used > 0;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * The offset of every entry in a changelog file, kept in a file next to the changelog. With the 
+ * index a page of entries can be read without parsing the entries before it, and the number of 
+ * entries is known without parsing anything.
+ * 
+ * The file holds MAGIC, VERSION, the length of the changelog it was written for, the number of 
+ * entries and then the offset of each entry. An index whose changelog length doesn't match is 
+ * ignored, the changelog has been changed behind our back. Offsets and lengths are of the 
+ * uncompressed changelog.
+ */
+public class ChangeLogIndex {
+    public static final String SUFFIX = ".index";
+
+    // SCCI, simple clearcase changelog index
+    private static final int MAGIC   = 0x53434349;
+    private static final int VERSION = 1;
+    private static final int HEADER  = 4 + 4 + 8 + 4;
+
+    private final File file;
+    private final int size;
+
+    private ChangeLogIndex(File file, int size) {
+        this.file = file;
+        this.size = size;
+    }
+
+    /**
+     * @param changelog
+     * @return the index file of changelog
+     */
+    public static File indexFileOf(File changelog) {
+        return new File(changelog.getPath() + SUFFIX);
+    }
+
+    /**
+     * @param changelog
+     * @return the index of changelog, null if there isn't any or it doesn't match changelog
+     * @throws IOException
+     */
+    public static ChangeLogIndex open(File changelog) throws IOException {
+        File file = indexFileOf(changelog);
+
+        if (file.isFile() == false || file.length() < HEADER) {
+            return null;
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            if (raf.readInt() != MAGIC || raf.readInt() != VERSION || raf.readLong() != ChangeLogFile.open(changelog).length()) {
+                return null;
+            }
+
+            int size = raf.readInt();
+            if (size < 0 || file.length() != HEADER + size * 8L) {
+                return null;
+            }
+            return new ChangeLogIndex(file, size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @return the number of entries in the changelog
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param entry the index of an entry, from 0 to size - 1
+     * @return where entry starts in the changelog
+     * @throws IOException
+     */
+    public long offsetOf(int entry) throws IOException {
+        if (entry < 0 || entry >= size) {
+            throw new IndexOutOfBoundsException("Entry " + entry + " of " + size);
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(HEADER + entry * 8L);
+            return raf.readLong();
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Collects offsets while a changelog is written
+     */
+    public static class Builder {
+        private long[] offsets = new long[64];
+        private int size;
+
+        public void add(long offset) {
+            if (size == offsets.length) {
+                long[] grown = new long[size * 2];
+                System.arraycopy(offsets, 0, grown, 0, size);
+                offsets = grown;
+            }
+            offsets[size++] = offset;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long get(int i) {
+            return offsets[i];
+        }
+
+        /**
+         * Writes the index of changelog, must be called when changelog is complete
+         * @param changelog
+         * @throws IOException
+         */
+        public void write(File changelog) throws IOException {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                                                               new FileOutputStream(indexFileOf(changelog))));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(ChangeLogFile.open(changelog).length());
+                out.writeInt(size);
+
+                for (int i = 0; i < size; i++) {
+                    out.writeLong(offsets[i]);
+                }
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.listeners.ItemListener;
+
+/**
+ * Checkins reported by ClearCase triggers, see SimpleClearCaseNotifyAction. A checkin is matched 
+ * against the load rules and branch of each job, and the load rules it matched are pending for 
+ * the job until its next poll, which polls them whatever the adaptive poll schedule says. Pending 
+ * load rules follow a job which is renamed and are dropped with a job which is deleted.
+ */
+public class CheckinNotifications {
+    private static final CheckinNotifications GLOBAL = new CheckinNotifications();
+
+    private static final String VIEW_PREFIX   = "/view/";
+    private static final String BRTYPE_PREFIX = "brtype:";
+
+    private final Map<String, Set<String>> pending = new HashMap<String, Set<String>>();
+    private long received;
+
+    /**
+     * @return the notifications shared by all jobs
+     */
+    public static CheckinNotifications global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @param loadRules the load rules of a job
+     * @param jobBranch the branch of the job, null or empty for all branches
+     * @param built the dates of the last build of the job, null if there isn't any
+     * @param path the checked in element, or a directory above it such as the VOB, can be view 
+     *             extended
+     * @param branch the branch of the checkin, null if unknown
+     * @param date of the checkin in epoch millis, LoadRuleDateMap.UNKNOWN if unknown
+     * @return the load rules the checkin can have changed, which weren't built after it
+     */
+    public static List<String> match(List<String> loadRules, String jobBranch, LoadRuleDateMap built, 
+                                     String path, String branch, long date) {
+        List<String> ret = new ArrayList<String>();
+        String checkinPath = toPath(path);
+
+        if (checkinPath.isEmpty() || sameBranch(jobBranch, branch) == false) {
+            return ret;
+        }
+
+        for (String loadRule : loadRules) {
+            String rulePath = toPath(loadRule);
+
+            // the element is below the load rule, or the load rule is below the reported directory
+            if (isBelow(checkinPath, rulePath) == false && isBelow(rulePath, checkinPath) == false) {
+                continue;
+            }
+            if (built != null && date != LoadRuleDateMap.UNKNOWN && built.getTime(loadRule) >= date) {
+                continue;
+            }
+            ret.add(loadRule);
+        }
+        return ret;
+    }
+
+    /**
+     * @param job the full name of the job
+     * @param loadRules to poll on its next poll
+     */
+    public synchronized void addPending(String job, Collection<String> loadRules) {
+        putPending(job, loadRules);
+        received++;
+    }
+
+    /**
+     * @param job the full name of the job
+     * @param loadRules from takePending, which a failed poll didn't poll
+     */
+    public synchronized void restorePending(String job, Collection<String> loadRules) {
+        putPending(job, loadRules);
+    }
+
+    /**
+     * @param oldJob the full name of the job before it was renamed
+     * @param newJob the full name of the job after it was renamed
+     */
+    public synchronized void renamePending(String oldJob, String newJob) {
+        Set<String> rules = pending.remove(oldJob);
+        if (rules != null) {
+            putPending(newJob, rules);
+        }
+    }
+
+    /**
+     * @param job the full name of a job which was deleted
+     */
+    public synchronized void removePending(String job) {
+        pending.remove(job);
+    }
+
+    /**
+     * @param job the full name of the job
+     * @return the load rules to poll, which are no longer pending
+     */
+    public synchronized Set<String> takePending(String job) {
+        Set<String> rules = pending.remove(job);
+        return (rules != null) ? rules : Collections.<String>emptySet();
+    }
+
+    private void putPending(String job, Collection<String> loadRules) {
+        Set<String> rules = pending.get(job);
+        if (rules == null) {
+            rules = new LinkedHashSet<String>();
+            pending.put(job, rules);
+        }
+        rules.addAll(loadRules);
+    }
+
+    /**
+     * @return the number of times a checkin matched a job
+     */
+    public synchronized long getReceived() {
+        return received;
+    }
+
+    /**
+     * @return path with forward slashes and no trailing slash, and without the /view/tag of a 
+     *         view extended path
+     */
+    static String toPath(String path) {
+        if (path == null) {
+            return "";
+        }
+        String ret = path.trim().replace('\\', '/');
+
+        if (ret.startsWith(VIEW_PREFIX)) {
+            int end = ret.indexOf('/', VIEW_PREFIX.length());
+            ret = (end >= 0) ? ret.substring(end) : "";
+        }
+        while (ret.endsWith("/")) {
+            ret = ret.substring(0, ret.length() - 1);
+        }
+        return ret;
+    }
+
+    /**
+     * @return true if path is parent or below it
+     */
+    private static boolean isBelow(String path, String parent) {
+        return path.startsWith(parent) && (path.length() == parent.length() || path.charAt(parent.length()) == '/');
+    }
+
+    /**
+     * @return true if the checkin branch is the branch of the job, or if either is unknown
+     */
+    private static boolean sameBranch(String jobBranch, String branch) {
+        String b1 = toBranchType(jobBranch);
+        String b2 = toBranchType(branch);
+        return b1.isEmpty() || b2.isEmpty() || b1.equals(b2);
+    }
+
+    /**
+     * @return the name of the branch type, without brtype: and @vob
+     */
+    private static String toBranchType(String branch) {
+        if (branch == null) {
+            return "";
+        }
+        String ret = branch.trim();
+
+        if (ret.startsWith(BRTYPE_PREFIX)) {
+            ret = ret.substring(BRTYPE_PREFIX.length());
+        }
+        int at = ret.indexOf('@');
+        return (at >= 0) ? ret.substring(0, at) : ret;
+    }
+
+    /**
+     * Keeps the pending load rules in step with the full names of the jobs, as they are only 
+     * taken by the job itself
+     */
+    @Extension
+    public static class JobListener extends ItemListener {
+        @Override
+        public void onRenamed(Item item, String oldName, String newName) {
+            String parent = item.getParent().getFullName();
+            String oldFullName = (parent.isEmpty() == true) ? oldName : parent + "/" + oldName;
+            global().renamePending(oldFullName, item.getFullName());
+        }
+
+        @Override
+        public void onDeleted(Item item) {
+            global().removePending(item.getFullName());
+        }
+    }
+}
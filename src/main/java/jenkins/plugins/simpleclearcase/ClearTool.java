@@ -24,36 +24,37 @@
 
 package jenkins.plugins.simpleclearcase;
 
-import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.io.Reader;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.TimeZone;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import jenkins.plugins.simpleclearcase.util.DateUtil;
+import jenkins.plugins.simpleclearcase.util.DateCodec;
 import jenkins.plugins.simpleclearcase.util.DebugHelper;
+import jenkins.plugins.simpleclearcase.util.PropSnapshot;
 import jenkins.plugins.simpleclearcase.util.PropUtils;
 
 import hudson.FilePath;
 import hudson.Launcher;
+import hudson.Proc;
+import hudson.console.LineTransformationOutputStream;
 import hudson.model.TaskListener;
 import hudson.util.ArgumentListBuilder;
+import hudson.util.DaemonThreadFactory;
 
 public class ClearTool {
-    private static final String LOG_LSHISTORY_PRIVATE = "lshistory(String filePath, Date since)";
-
-    private static final String ADDED_ELEMENT_QUOTATION = "\"";
-    private static final String ADDED_FILE_ELEMENT      = "Added file element";
-    private static final String ADDED_DIRECTORY_ELEMENT = "Added directory element";
+    // a system property, with the path of the cleartool executable when it isn't on PATH, the
+    // same path is used on every node
+    public static final String EXECUTABLE_PROPERTY = PropSnapshot.SYSTEM_PREFIX + "cleartool";
 
     private static final String CLEARTOOL = "cleartool";
     private static final String LSVIEW    = "lsview";
@@ -69,11 +70,15 @@ public class ClearTool {
     private static final String PARAM_EXEC    = "-exec";
     private static final String PARAM_BRANCH  = "-branch";
 
-    private static final String LSHISTORY_ENTRY_DATE_FORMAT = "yyyyMMdd.HHmmss";
-    private static final String SINCE_DATE_FORMAT           = "d-MMM-yy.HH:mm:ss'UTC'Z";
+    // frames the output of each command in a batch, the nonce makes sure that we
+    // don't confuse a comment in lshistory with a delimiter
+    private static final String BATCH_BEGIN     = "@@simpleclearcase-%s-begin %d";
+    private static final String BATCH_END       = "@@simpleclearcase-%s-end %d";
+    private static final String BATCH_ECHO      = "echo \"%s\"";
+    private static final String BATCH_ECHO_EXIT = "echo \"%s $?\"";
+
+    private static final String SETVIEW_FAILED = "ClearTool: couldn't set view %s: %s";
 
-    private static final String FILTER_MKBRANCH = "mkbranch";
-    private static final String FILTER_RMBRANCH = "rmbranch";
     
     private Launcher     launcher;
     private TaskListener listener;
@@ -81,6 +86,14 @@ public class ClearTool {
     private String       viewname;
     private String       branch;
     private boolean      filter;
+    private int          threads = 1;
+    private boolean      batch;
+    private boolean      sessions;
+    private PropSnapshot props;
+    // locale and time zone settings of -since are fetched from props
+    private DateCodec    sinceCodec;
+    private LshistoryCache cache = LshistoryCache.global();
+    private ClearToolMetrics metrics = ClearToolMetrics.global();
 
     public ClearTool(Launcher launcher, TaskListener listener, FilePath workspace, 
                                           String viewname, String branch, 
@@ -91,8 +104,75 @@ public class ClearTool {
         this.viewname  = viewname;
         this.branch = branch;
         this.filter = filter;
+        setProps(PropUtils.getSnapshot());
+    }
+
+    /**
+     * @param props the properties to use instead of the global ones, such as a job's overrides
+     */
+    public void setProps(PropSnapshot props) {
+        this.props      = props;
+        this.sinceCodec = DateCodec.forLshistory(props);
+    }
+
+    /**
+     * @param threads the number of load rules which lshistory is run for concurrently, 
+     *                a value of one or less means that load rules are processed one at a time
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param batch if true lshistory for all load rules is run through a single setview, given 
+     *              that the launcher is unix, this takes precedence over threads
+     */
+    public void setBatch(boolean batch) {
+        this.batch = batch;
+    }
+
+    public boolean isBatch() {
+        return batch;
+    }
+
+    /**
+     * @param sessions if true commands that need a view are sent to a pooled, long lived cleartool
+     *                 process instead of starting a new process, this takes precedence over batch
+     */
+    public void setSessions(boolean sessions) {
+        this.sessions = sessions;
+    }
+
+    public boolean isSessions() {
+        return sessions;
+    }
+
+    /**
+     * @param cache where lshistory results are shared, instead of the global one
+     */
+    public void setCache(LshistoryCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * @param metrics where the cleartool commands are recorded, instead of the global one
+     */
+    public void setMetrics(ClearToolMetrics metrics) {
+        this.metrics = metrics;
     }
     
+    /**
+     * @return the cleartool executable, the system property EXECUTABLE_PROPERTY if it is set
+     */
+    public static String getExecutable() {
+        String ret = System.getProperty(EXECUTABLE_PROPERTY);
+        return (ret != null && ret.trim().isEmpty() == false) ? ret.trim() : CLEARTOOL;
+    }
+
     /**
      * @param viewTag
      * @return
@@ -128,6 +208,81 @@ public class ClearTool {
         return true;
     }
 
+    /**
+     * @param paths
+     * @return the first path in paths which doesn't exist in ClearCase, null if all of them exist
+     * @throws InterruptedException
+     * @throws IOException if the view couldn't be set, then nothing is known about the paths
+     */
+    public String findMissingClearCasePath(List<String> paths) throws InterruptedException, IOException {
+        List<ArgumentListBuilder> cmds = new ArrayList<ArgumentListBuilder>();
+
+        for (String path : paths) {
+            ArgumentListBuilder cmd = new ArgumentListBuilder();
+            cmd.add(DESCRIBE);
+            cmd.add(path);
+            cmds.add(cmd);
+        }
+        return findFailingPath(paths, cmds);
+    }
+
+    /**
+     * @param paths
+     * @return the first path in paths which lacks the branch, null if all of them have it
+     * @throws InterruptedException
+     * @throws IOException if the view couldn't be set, then nothing is known about the paths
+     */
+    public String findPathWithoutBranch(List<String> paths) throws InterruptedException, IOException {
+        List<ArgumentListBuilder> cmds = new ArrayList<ArgumentListBuilder>();
+
+        for (String path : paths) {
+            cmds.add(lshistoryCommand(path, null));
+        }
+        return findFailingPath(paths, cmds);
+    }
+
+    /**
+     * @param paths
+     * @param cmds the command to run for each path
+     * @return the first path whose command failed, null if none failed
+     * @throws InterruptedException
+     * @throws IOException if the view couldn't be set
+     */
+    private String findFailingPath(List<String> paths, 
+                               List<ArgumentListBuilder> cmds) throws InterruptedException, IOException {
+        if (canBatch(paths.size()) == false) {
+            for (int i = 0; i < paths.size(); i++) {
+                try {
+                    executeWithView(cmds.get(i), null);
+                } catch (IOException e) {
+                    // a failed setview looks the same as a failed command, hence we check the view
+                    if (doesViewExist(viewname) == false) {
+                        throw new IOException(String.format(SETVIEW_FAILED, viewname, e.getMessage()));
+                    }
+                    return paths.get(i);
+                }
+            }
+            return null;
+        }
+
+        int[] statuses;
+        try {
+            // we are only interested in the exit status of each command
+            statuses = executeBatch(cmds, new ArrayList<OutputStream>(Collections.nCopies(cmds.size(), 
+                                                                                   (OutputStream) null)));
+        } catch (IOException e) {
+            // the setview itself failed, nothing can be said about the paths
+            throw new IOException(String.format(SETVIEW_FAILED, viewname, e.getMessage()));
+        }
+
+        for (int i = 0; i < paths.size(); i++) {
+            if (statuses[i] != 0) {
+                return paths.get(i);
+            }
+        }
+        return null;
+    }
+
     public boolean doesClearCaseBranchExist(String path) throws InterruptedException{
 
         try {
@@ -148,14 +303,40 @@ public class ClearTool {
      */
     public LoadRuleDateMap getLatestCommitDates(List<String> loadRules, 
                              LoadRuleDateMap previousCommits) throws InterruptedException, IOException {
-        LoadRuleDateMap ret = new LoadRuleDateMap();
-        for (String lr : loadRules) {
-            // we fetch the latest date for load rule lr and limit the set of
-            // entries from lshistory by giving the previous commit date for the load rule
-            ret.setBuildTime(lr, DateUtil.getLatestDate(
-                                                lshistory(lr, previousCommits.getBuiltTime(lr))));
+        // we fetch the latest date for each load rule and limit the set of
+        // entries from lshistory by giving the previous commit date for the load rule.
+        // Only dates are fetched, and we stop as soon as there is anything new
+        final LoadRuleDateMap since = previousCommits;
+        List<Date> dates = new Shared<Date>() {
+            String key(String loadRule) {
+                return probeKey(loadRule, getSince(since, loadRule));
+            }
+
+            LshistoryCache.Item toItem(Date latest) {
+                return LshistoryCache.Item.probe(latest);
+            }
+
+            Date fromItem(LshistoryCache.Item item) {
+                return item.getLatest();
+            }
+
+            List<Date> fetch(List<String> loadRules) throws InterruptedException, IOException {
+                if (canBatch(loadRules.size()) == true && batch == true) {
+                    return probeBatch(loadRules, since);
+                }
+                return forEachLoadRule(loadRules, new LoadRuleTask<Date>() {
+                    public Date call(String loadRule) throws InterruptedException, IOException {
+                        return probe(loadRule, getSince(since, loadRule));
+                    }
+                });
+            }
+        }.get(loadRules);
+
+        LoadRuleDateMap.Builder ret = new LoadRuleDateMap.Builder();
+        for (int i = 0; i < loadRules.size(); i++) {
+            ret.put(loadRules.get(i), dates.get(i));
         }
-        return ret;
+        return ret.build();
     }
 
     /**
@@ -171,100 +352,422 @@ public class ClearTool {
      */
     public List<SimpleClearCaseChangeLogEntry> lshistory(List<String> loadRules, 
                                LoadRuleDateMap previousCommit) throws InterruptedException, IOException {
+        List<List<SimpleClearCaseChangeLogEntry>> results = lshistoryPerLoadRule(loadRules, previousCommit);
+
+        // results are in load rule order, so the merged list doesn't depend on
+        // which load rule finished first
         List<SimpleClearCaseChangeLogEntry> entries = new ArrayList<SimpleClearCaseChangeLogEntry>();
+        for (List<SimpleClearCaseChangeLogEntry> l : results) {
+            if (l != null) {
+                entries.addAll(l);
+            }
+        }
+        return entries;
+    }
 
-        for (String lr : loadRules) {
-            List<SimpleClearCaseChangeLogEntry> l;
+    /**
+     * @param loadRules
+     * @param previousCommit the since date for each load rule, can be null
+     * @return the lshistory entries of each load rule, in the same order as loadRules
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    private List<List<SimpleClearCaseChangeLogEntry>> lshistoryPerLoadRule(List<String> loadRules, 
+                         final LoadRuleDateMap previousCommit) throws InterruptedException, IOException {
+        return new Shared<List<SimpleClearCaseChangeLogEntry>>() {
+            String key(String loadRule) {
+                return lshistoryKey(loadRule, getSince(previousCommit, loadRule));
+            }
 
-            if (previousCommit == null) {
-                l = lshistory(lr, null);
-            } else {
-                l = lshistory(lr, previousCommit.getBuiltTime(lr));
+            LshistoryCache.Item toItem(List<SimpleClearCaseChangeLogEntry> entries) {
+                return LshistoryCache.Item.entries(entries);
             }
 
-            if (l != null) {
-                entries.addAll(l);
+            List<SimpleClearCaseChangeLogEntry> fromItem(LshistoryCache.Item item) {
+                return item.getEntries();
             }
+
+            List<List<SimpleClearCaseChangeLogEntry>> fetch(List<String> loadRules) 
+                                                                  throws InterruptedException, IOException {
+                if (canBatch(loadRules.size()) == true && batch == true) {
+                    return lshistoryBatch(loadRules, previousCommit);
+                }
+                return forEachLoadRule(loadRules, new LoadRuleTask<List<SimpleClearCaseChangeLogEntry>>() {
+                    public List<SimpleClearCaseChangeLogEntry> call(String loadRule) 
+                                                                  throws InterruptedException, IOException {
+                        return lshistory(loadRule, getSince(previousCommit, loadRule));
+                    }
+                });
+            }
+        }.get(loadRules);
+    }
+
+    /**
+     * @param loadRules
+     * @param previousCommit the since date for each load rule, can be null
+     * @return the lshistory entries of each load rule, fetched through one setview
+     * @throws InterruptedException
+     * @throws IOException if the setview failed or lshistory failed for any load rule
+     */
+    private List<List<SimpleClearCaseChangeLogEntry>> lshistoryBatch(List<String> loadRules, 
+                               LoadRuleDateMap previousCommit) throws InterruptedException, IOException {
+        List<ArgumentListBuilder> cmds = new ArrayList<ArgumentListBuilder>();
+
+        for (String lr : loadRules) {
+            cmds.add(lshistoryCommand(lr, getSince(previousCommit, lr)));
         }
-        return entries;
+
+        // the output of each load rule is parsed while the batch is running
+        List<LshistoryParser.Collector> collectors = new ArrayList<LshistoryParser.Collector>();
+        List<OutputStream> outs = new ArrayList<OutputStream>();
+
+        for (int i = 0; i < loadRules.size(); i++) {
+            LshistoryParser.Collector collector = new LshistoryParser.Collector();
+            collectors.add(collector);
+            outs.add(new LshistoryParser(filter, listener, collector, metrics).asOutputStream());
+        }
+
+        int[] statuses = executeBatch(cmds, outs);
+        List<List<SimpleClearCaseChangeLogEntry>> ret = new ArrayList<List<SimpleClearCaseChangeLogEntry>>();
+
+        for (int i = 0; i < loadRules.size(); i++) {
+            checkExitCode(statuses[i], cmds.get(i), null);
+            ret.add(collectors.get(i).getEntries());
+        }
+        return ret;
     }
 
     /**
-     * @param filePath
-     *            a specific file path which we want to fetch commit changes
-     *            from SCM.
+     * @param loadRule
      * @param since
-     * @return a list of ChangeLog entries, parsed from the rawLshistory
-     * 
+     * @return the latest date of the events seen for loadRule, null if there wasn't any event. 
+     *         If there is an event after since, it is newer than since but not necessarily the latest
      * @throws InterruptedException
      * @throws IOException
      */
-    private List<SimpleClearCaseChangeLogEntry> lshistory(String filePath,
-                                                   Date since) throws InterruptedException, IOException {
-        BufferedReader in = new BufferedReader(rawLshistory(filePath, since));
-        List<SimpleClearCaseChangeLogEntry> ret = new ArrayList<SimpleClearCaseChangeLogEntry>();
+    private Date probe(String loadRule, Date since) throws InterruptedException, IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+
+        try {
+            Date ret = probeLatest(loadRule, since);
+            // a probe which is killed as soon as it has found its answer hasn't failed
+            failed = false;
+            return ret;
+        } finally {
+            metrics.record(LSHISTORY, System.nanoTime() - start, failed, true);
+        }
+    }
 
-        String readline = in.readLine();
-        SimpleClearCaseChangeLogEntry currentEntry = null;
+    private Date probeLatest(String loadRule, Date since) throws InterruptedException, IOException {
+        ArgumentListBuilder cmd = lshistoryCommand(loadRule, since, LshistoryProbe.PROBE_FORMATTING);
+        LshistoryProbe probe = new LshistoryProbe(since, filter, metrics);
 
-        while (readline != null) {
-            // empty lines cannot be parsed
-            if (readline.trim().isEmpty()) {
-                readline = in.readLine();
-                continue;
+        if (sessions == true) {
+            // a session can't be interrupted in the middle of a command
+            executeInSession(cmd, metrics.countBytes(probe));
+            return probe.getLatest();
+        }
+
+        ArgumentListBuilder fullCmd = appendOptions(cmd, true);
+        Launcher.ProcStarter procStarter = launcher.launch().cmds(fullCmd).stdout(metrics.countBytes(probe));
+
+        if (workspace != null) {
+            procStarter = procStarter.pwd(workspace);
+        }
+
+        final Proc proc = procStarter.start();
+        final LshistoryProbe exitProbe = probe;
+
+        // join in the background, such that we can stop waiting as soon as the probe is found
+        Thread joiner = new Thread("simpleclearcase probe " + loadRule) {
+            @Override
+            public void run() {
+                int ret = -1;
+                try {
+                    ret = proc.join();
+                } catch (IOException e) {
+                    // reported as a failed exit code
+                } catch (InterruptedException e) {
+                    // reported as a failed exit code
+                } finally {
+                    exitProbe.exited(ret);
+                }
             }
+        };
+        joiner.setDaemon(true);
+        joiner.start();
+
+        try {
+            if (probe.awaitFoundOrExit() == true) {
+                // we have our answer, the rest of the history isn't needed
+                proc.kill();
+                return probe.getLatest();
+            }
+        } catch (InterruptedException e) {
+            proc.kill();
+            throw e;
+        }
+
+        probe.close();
+        checkExitCode(probe.getExitCode(), fullCmd, null);
+        return probe.getLatest();
+    }
+
+    /**
+     * @param loadRules
+     * @param previousCommit the since date for each load rule, can be null
+     * @return the latest date of each load rule, probed through one setview
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    private List<Date> probeBatch(List<String> loadRules, 
+                               LoadRuleDateMap previousCommit) throws InterruptedException, IOException {
+        List<ArgumentListBuilder> cmds = new ArrayList<ArgumentListBuilder>();
+        List<OutputStream> probes = new ArrayList<OutputStream>();
+
+        for (String lr : loadRules) {
+            Date since = getSince(previousCommit, lr);
+            cmds.add(lshistoryCommand(lr, since, LshistoryProbe.PROBE_FORMATTING));
+            probes.add(new LshistoryProbe(since, filter, metrics));
+        }
+
+        int[] statuses = executeBatch(cmds, probes);
+        List<Date> ret = new ArrayList<Date>();
+
+        for (int i = 0; i < loadRules.size(); i++) {
+            checkExitCode(statuses[i], cmds.get(i), null);
+            ret.add(((LshistoryProbe) probes.get(i)).getLatest());
+        }
+        return ret;
+    }
 
-            // a commit entry could be split over several lines hence we need to check for additional info
-            if (readline.startsWith(ADDED_FILE_ELEMENT)
-                    || readline.startsWith(ADDED_DIRECTORY_ELEMENT)) {
-                if (currentEntry == null) {
-                    DebugHelper.error(listener, "%s: CurrentEntry is null when a ADDED_FILE_ELEMENT or "
-                                            + "ADDED_DIRECTORY_ELEMENT popped up, shouldn't happen. row " 
-                                            + "is: %s", LOG_LSHISTORY_PRIVATE, readline);
+    /**
+     * A result for each load rule which is shared with other jobs through the LshistoryCache. A 
+     * result is taken from the cache, or from an identical lshistory which is already running, 
+     * and only the remaining load rules are fetched.
+     */
+    private abstract class Shared<T> {
+        abstract String key(String loadRule);
+
+        abstract LshistoryCache.Item toItem(T value);
+
+        abstract T fromItem(LshistoryCache.Item item);
+
+        /**
+         * @return the result of each load rule, in the same order as loadRules
+         */
+        abstract List<T> fetch(List<String> loadRules) throws InterruptedException, IOException;
+
+        List<T> get(List<String> loadRules) throws InterruptedException, IOException {
+            List<T> ret = new ArrayList<T>(Collections.<T>nCopies(loadRules.size(), null));
+            // a load rule which is listed twice is boarded once, as we would wait for ourselves
+            Map<String, List<Integer>> indices = new LinkedHashMap<String, List<Integer>>();
+
+            for (int i = 0; i < loadRules.size(); i++) {
+                String key = key(loadRules.get(i));
+                if (indices.containsKey(key) == false) {
+                    indices.put(key, new ArrayList<Integer>());
                 }
+                indices.get(key).add(i);
+            }
+
+            List<String> led                          = new ArrayList<String>();
+            List<LshistoryCache.Boarding> ledBoardings = new ArrayList<LshistoryCache.Boarding>();
+            Map<String, LshistoryCache.Boarding> waiting = new LinkedHashMap<String, LshistoryCache.Boarding>();
+
+            for (String key : indices.keySet()) {
+                LshistoryCache.Item cached = cache.get(key, props.getLshistoryCacheSeconds());
 
-                // with the formatting we have the ELEMENT row wraps the
-                // filepath with quote.
-                int startIndex = readline.indexOf(ADDED_ELEMENT_QUOTATION) + 1;
-                int endIndex   = readline.indexOf(ADDED_ELEMENT_QUOTATION, startIndex);
-                
-                currentEntry.addPath(readline.substring(startIndex, endIndex));
-            } else {
-                // here we actually parse the entry and build an entry from it
-                SimpleClearCaseChangeLogEntry tmpEntry = parseRawLsHistoryEntry(readline);
-
-                // if its a valid entry we add it to collection and update current entry such that
-                // new paths like "added file directory" are also added to the entry
-                if (tmpEntry != null) {
-                    currentEntry = tmpEntry;
-                    ret.add(currentEntry);
+                if (cached != null) {
+                    set(ret, indices.get(key), fromItem(cached));
+                    continue;
+                }
+
+                LshistoryCache.Boarding boarding = cache.board(key);
+                if (boarding.isLeader() == true) {
+                    led.add(key);
+                    ledBoardings.add(boarding);
                 } else {
-                    DebugHelper.error(listener, "%s: Wasn't able to parse row, hence we skip it, " 
-                                                        + "line: %s", LOG_LSHISTORY_PRIVATE, readline);
+                    waiting.put(key, boarding);
+                }
+            }
+
+            if (led.isEmpty() == false) {
+                List<String> missing = new ArrayList<String>();
+                for (String key : led) {
+                    missing.add(loadRules.get(indices.get(key).get(0)));
+                }
+
+                List<T> fetched = null;
+                try {
+                    fetched = fetch(missing);
+                } finally {
+                    // those waiting for a flight which failed fetch it themselves
+                    for (int j = 0; j < ledBoardings.size(); j++) {
+                        cache.land(ledBoardings.get(j), (fetched != null) ? toItem(fetched.get(j)) : null, 
+                                                                               props.getLshistoryCacheSize());
+                    }
+                }
+
+                for (int j = 0; j < led.size(); j++) {
+                    set(ret, indices.get(led.get(j)), fetched.get(j));
                 }
             }
-            readline = in.readLine();
+
+            for (Map.Entry<String, LshistoryCache.Boarding> w : waiting.entrySet()) {
+                LshistoryCache.Item item = w.getValue().await();
+                List<Integer> at = indices.get(w.getKey());
+                set(ret, at, (item != null) ? fromItem(item) 
+                                            : fetch(Collections.singletonList(loadRules.get(at.get(0)))).get(0));
+            }
+            return ret;
+        }
+
+        /**
+         * Sets value at each of indices, the duplicates get a copy of their own
+         */
+        private void set(List<T> ret, List<Integer> indices, T value) {
+            ret.set(indices.get(0), value);
+            for (int i = 1; i < indices.size(); i++) {
+                ret.set(indices.get(i), fromItem(toItem(value)));
+            }
+        }
+    }
+
+    /**
+     * @return the key of the probe of loadRule in the LshistoryCache
+     */
+    private String probeKey(String loadRule, Date since) {
+        return LshistoryCache.keyOf(viewname, filter, 
+                                         lshistoryCommand(loadRule, since, LshistoryProbe.PROBE_FORMATTING));
+    }
+
+    /**
+     * @return the key of the entries of loadRule in the LshistoryCache
+     */
+    private String lshistoryKey(String loadRule, Date since) {
+        return LshistoryCache.keyOf(viewname, filter, lshistoryCommand(loadRule, since));
+    }
+
+    private static Date getSince(LoadRuleDateMap previousCommit, String loadRule) {
+        return (previousCommit == null) ? null : previousCommit.getBuiltTime(loadRule);
+    }
+
+    /**
+     * @param loadRules the load rules to run task for
+     * @param task
+     * @return the result of task for each load rule, in the same order as loadRules
+     * @throws InterruptedException
+     * @throws IOException the first IOException thrown by task, remaining tasks are cancelled
+     */
+    private <T> List<T> forEachLoadRule(List<String> loadRules, 
+                                 final LoadRuleTask<T> task) throws InterruptedException, IOException {
+        List<T> ret = new ArrayList<T>(loadRules.size());
+        int width = Math.min(threads, loadRules.size());
+
+        if (width <= 1) {
+            for (String lr : loadRules) {
+                ret.add(task.call(lr));
+            }
+            return ret;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(width, new DaemonThreadFactory());
+        try {
+            List<Future<T>> futures = new ArrayList<Future<T>>(loadRules.size());
+
+            for (final String lr : loadRules) {
+                futures.add(pool.submit(new Callable<T>() {
+                    public T call() throws Exception {
+                        return task.call(lr);
+                    }
+                }));
+            }
+
+            for (Future<T> f : futures) {
+                ret.add(getResult(f));
+            }
+        } finally {
+            // if a load rule failed we don't wait for the rest of them
+            pool.shutdownNow();
         }
-        in.close();
         return ret;
     }
 
+    /**
+     * @param future
+     * @return the result of future, with the cause of an ExecutionException unwrapped
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    private static <T> T getResult(Future<T> future) throws InterruptedException, IOException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause.getMessage());
+        }
+    }
+
+    /**
+     * @param filePath
+     *            a specific file path which we want to fetch commit changes
+     *            from SCM.
+     * @param since
+     * @return a list of ChangeLog entries, parsed from the rawLshistory
+     * 
+     * @throws InterruptedException
+     * @throws IOException
+     */
+    private List<SimpleClearCaseChangeLogEntry> lshistory(String filePath,
+                                                   Date since) throws InterruptedException, IOException {
+        LshistoryParser.Collector collector = new LshistoryParser.Collector();
+        rawLshistory(filePath, since, new LshistoryParser(filter, listener, collector, metrics).asOutputStream());
+        return collector.getEntries();
+    }
+
     /**
      * @param filePath to the element in repository
      * @param since  from when we want to fetch history entries from
-     * 
-     * @return reader to the byte array input stream with raw entries
+     * @param out the raw entries are written to out as they arrive, out is closed afterwards
      * 
      * @throws InterruptedException
      * @throws IOException
      */
-    private Reader rawLshistory(String filePath, Date since) throws InterruptedException, IOException {
-        ArgumentListBuilder cmd = new ArgumentListBuilder();
+    private void rawLshistory(String filePath, Date since, 
+                                               OutputStream out) throws InterruptedException, IOException {
+        executeWithView(lshistoryCommand(filePath, since), out);
+        out.close();
+    }
 
-        // fetching locale and time zone settings from properties file
-        SimpleDateFormat fmt = new SimpleDateFormat(SINCE_DATE_FORMAT, 
-                                                                  new Locale(PropUtils.getLocale()));
-        fmt.setTimeZone(TimeZone.getTimeZone(PropUtils.getTimeZone()));
+    /**
+     * @param filePath to the element in repository
+     * @param since from when we want to fetch history entries from
+     * @return the lshistory command, without cleartool prefix
+     */
+    private ArgumentListBuilder lshistoryCommand(String filePath, Date since) {
+        return lshistoryCommand(filePath, since, SimpleClearCaseChangeLogEntry.LSHISTORY_FORMATTING);
+    }
+
+    /**
+     * @param filePath to the element in repository
+     * @param since from when we want to fetch history entries from
+     * @param format the -fmt of each event
+     * @return the lshistory command, without cleartool prefix
+     */
+    private ArgumentListBuilder lshistoryCommand(String filePath, Date since, String format) {
+        ArgumentListBuilder cmd = new ArgumentListBuilder();
 
         cmd.add(LSHISTORY);
         
@@ -275,28 +778,21 @@ public class ClearTool {
         if (since != null) {
             cmd.add(PARAM_RECURSE);
             // if the date is null, there is no time bound on lshistory            
-            cmd.add(PARAM_SINCE, fmt.format(since).toLowerCase());
+            cmd.add(PARAM_SINCE, sinceCodec.formatSince(since));
         } else {
             // if it's the first build there isn't any previous date to take as starting point
             // but we don't want a gigantic set, so we also add LAST parameter,
             // to limit down the result set
             cmd.add(PARAM_LAST);
-            cmd.add(PropUtils.getLshistoryLastNumEventsValue());
+            cmd.add(Integer.toString(props.getLshistoryLastNumEvents()));
         }
         
         
         cmd.add(PARAM_FMT);
-        cmd.add(SimpleClearCaseChangeLogEntry.LSHISTORY_FORMATTING);
+        cmd.add(format);
         cmd.add(PARAM_NCO);
         cmd.add(filePath);
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        executeWithView(cmd, baos);
-
-        byte[] result = baos.toByteArray();
-        baos.close();
-
-        return new InputStreamReader(new ByteArrayInputStream(result));
+        return cmd;
     }
 
     /**
@@ -317,14 +813,14 @@ public class ClearTool {
         if (needsView == true) {
             ret = new ArgumentListBuilder();
 
-            ret.add(CLEARTOOL);
+            ret.add(getExecutable());
             ret.add(SETVIEW);
             ret.add(PARAM_EXEC);
-            ret.add(cmd.prepend(CLEARTOOL).toStringWithQuote());
+            ret.add(cmd.prepend(getExecutable()).toStringWithQuote());
             ret.add(this.viewname);
         } else {
             // if we don't need a view to execute we just prepend with cleartool
-            ret = cmd.prepend(CLEARTOOL);
+            ret = cmd.prepend(getExecutable());
         }
         return ret;
     }
@@ -362,6 +858,29 @@ public class ClearTool {
      */
     private boolean execute(ArgumentListBuilder cmd, FilePath workDir,  OutputStream out,
                                              boolean needsView) throws IOException, InterruptedException {
+        String command = cmd.toList().get(0);
+        long start = System.nanoTime();
+        boolean failed = true;
+
+        try {
+            boolean ret = launch(cmd, workDir, metrics.countBytes(out), needsView);
+            failed = false;
+            return ret;
+        } finally {
+            metrics.record(command, System.nanoTime() - start, failed, 
+                                                      needsView == true || command.equals(SETVIEW));
+        }
+    }
+
+    /**
+     * Executes cmd without recording it, see execute
+     */
+    private boolean launch(ArgumentListBuilder cmd, FilePath workDir,  OutputStream out,
+                                             boolean needsView) throws IOException, InterruptedException {
+        if (needsView == true && sessions == true) {
+            return executeInSession(cmd, out);
+        }
+
         if (workDir == null) {
             workDir = workspace;
         }
@@ -379,7 +898,17 @@ public class ClearTool {
             procStarter = procStarter.stdout(out);
         }
         int ret = procStarter.join();
+        return checkExitCode(ret, cmd, out);
+    }
 
+    /**
+     * @param ret exit code of cmd
+     * @param cmd the executed command
+     * @param out the output stream of the command, it is closed if the command failed
+     * @return true if ret indicates success
+     * @throws IOException if ret is above 0
+     */
+    private boolean checkExitCode(int ret, ArgumentListBuilder cmd, OutputStream out) throws IOException {
         if (ret != 0) {
             String errMsg = String.format("ClearTool: Exit code wasn't ok, "
                                         + "code: %d. Tried to execute: %s", ret, cmd.toStringWithQuote());
@@ -394,46 +923,142 @@ public class ClearTool {
         return true;
     }
 
-    private SimpleClearCaseChangeLogEntry parseRawLsHistoryEntry(String readline) {
-        // ClearCase returns with a specific formatting on date
-        SimpleDateFormat fmt = new SimpleDateFormat(LSHISTORY_ENTRY_DATE_FORMAT, 
-                                                                  new Locale(PropUtils.getLocale()));
+    /**
+     * @param cmd a command that needs a view, without cleartool prefix
+     * @param out output from executed command is pushed to this stream
+     * @return true if command was successfully executed
+     * @throws IOException if the exit status of the command is above 0 or the session failed
+     * @throws InterruptedException
+     */
+    private boolean executeInSession(ArgumentListBuilder cmd, OutputStream out) 
+                                                                throws IOException, InterruptedException {
+        ClearToolSessionPool pool = ClearToolSessionPool.getInstance();
+        ClearToolSession session = pool.borrow(launcher, viewname);
+        boolean healthy = false;
+        int ret;
+
+        try {
+            ret = session.execute(cmd, out, listener, ClearToolSessionPool.COMMAND_TIMEOUT);
+            // a session with a failed command is closed as well, rather than reused
+            healthy = (ret == 0);
+        } finally {
+            pool.release(session, healthy);
+        }
+        return checkExitCode(ret, cmd, out);
+    }
+
+    /**
+     * @param length the number of commands
+     * @return true if it makes sense to run the commands through executeBatch
+     */
+    private boolean canBatch(int length) {
+        // the batch script is a shell script, hence unix only. With sessions there is
+        // no process to save by batching
+        return length > 1 && launcher.isUnix() && sessions == false;
+    }
 
-        // see the ChangeLogEntry.LSHISTORY_FORMATTING for details regarding parameters in one entry
-        String[] splitted = readline.split(SimpleClearCaseChangeLogEntry.LSHISTORY_SPLIT_SEQUENCE);
+    /**
+     * Executes all cmds inside of one setview. The commands are put together to a shell script
+     * where the output of each command is framed by delimiters, which are used to split the output
+     * back to the separate commands while it is read.
+     * 
+     * @param cmds commands that needs a view
+     * @param outs the output of each command is written to the corresponding stream, which is 
+     *             closed when the command is done, a stream can be null
+     * @return the exit status of each command, in the same order as cmds
+     * @throws IOException if the setview failed or the output couldn't be split 
+     * @throws InterruptedException
+     */
+    private int[] executeBatch(List<ArgumentListBuilder> cmds, 
+                                 List<OutputStream> outs) throws IOException, InterruptedException {
+        String nonce = Long.toHexString(System.nanoTime());
+        StringBuilder script = new StringBuilder();
 
-        Date entryDate = null;
+        for (int i = 0; i < cmds.size(); i++) {
+            script.append(String.format(BATCH_ECHO, String.format(BATCH_BEGIN, nonce, i))).append('\n');
+            script.append(cmds.get(i).clone().prepend(getExecutable()).toStringWithQuote()).append('\n');
+            script.append(String.format(BATCH_ECHO_EXIT, String.format(BATCH_END, nonce, i))).append('\n');
+        }
 
-        try {
-            entryDate = fmt.parse(splitted[0]);
-        } catch (ParseException e) {
-            // if we cannot parse the date then the whole entry will be
-            // irrelevant and we just return null
-            // calling method will log the line
+        // the script does its own framing, hence we set the view here rather than through appendOptions
+        ArgumentListBuilder cmd = new ArgumentListBuilder();
+        cmd.add(SETVIEW);
+        cmd.add(PARAM_EXEC);
+        cmd.add(script.toString());
+        cmd.add(this.viewname);
+
+        BatchOutputStream out = new BatchOutputStream(nonce, outs);
+        execute(cmd, null, out, false);
+        out.close();
+
+        // the commands of the batch are timed together as the setview
+        for (int i = 0; i < out.getCompleted(); i++) {
+            metrics.count(cmds.get(i).toList().get(0), out.getStatuses()[i] != 0);
         }
 
-        if (entryDate == null) {
-            return null;
+        if (out.getCompleted() != cmds.size()) {
+            String errMsg = String.format("ClearTool: batch output ended after %d of %d commands", 
+                                                                         out.getCompleted(), cmds.size());
+            DebugHelper.error(listener, errMsg);
+            throw new IOException(errMsg);
         }
+        return out.getStatuses();
+    }
 
-        String user             = splitted[1];
-        String path             = splitted[2];
-        String version          = splitted[3];
-        String eventDescription = splitted[4];
-        String operation        = splitted[5];
-        // if there isn't a comment we have an element less
-        String comment          = (splitted.length > 6) ? splitted[6] : ""; 
+    /**
+     * A unit of work which is performed for a single load rule
+     */
+    private interface LoadRuleTask<T> {
+        T call(String loadRule) throws InterruptedException, IOException;
+    }
 
-        // we filter away events that consist of creation and deletion of branches
-        // if filter is true
-        if (filter == true && 
-                (operation.equals(FILTER_MKBRANCH) || operation.equals(FILTER_RMBRANCH))) {
-            return null;
+    /**
+     * Splits the framed output of a batch script and forwards the output of each command
+     * to its own stream, one line at a time
+     */
+    private static class BatchOutputStream extends LineTransformationOutputStream {
+        private final String nonce;
+        private final List<OutputStream> outs;
+        private final int[] statuses;
+        private int completed;
+        private boolean inside;
+
+        public BatchOutputStream(String nonce, List<OutputStream> outs) {
+            this.nonce    = nonce;
+            this.outs     = outs;
+            this.statuses = new int[outs.size()];
+        }
+
+        @Override
+        protected void eol(byte[] b, int len) throws IOException {
+            String line = new String(b, 0, len).trim();
+
+            if (completed >= outs.size()) {
+                return;
+            }
+            OutputStream current = outs.get(completed);
+
+            if (inside == false) {
+                inside = line.equals(String.format(BATCH_BEGIN, nonce, completed));
+            } else if (line.startsWith(String.format(BATCH_END, nonce, completed) + " ")) {
+                statuses[completed] = Integer.parseInt(line.substring(line.lastIndexOf(' ') + 1));
+                inside = false;
+                completed++;
+
+                if (current != null) {
+                    current.close();
+                }
+            } else if (current != null) {
+                current.write(b, 0, len);
+            }
+        }
+
+        public int getCompleted() {
+            return completed;
+        }
+
+        public int[] getStatuses() {
+            return statuses;
         }
-        
-        // the constructor of ChangeLogEntry follows LSHISTORY_FORMATTING
-        // parameter order
-        return new SimpleClearCaseChangeLogEntry(entryDate, user, path, version, eventDescription, 
-                                                                                      operation, comment);
     }
-}
\ No newline at end of file
+}
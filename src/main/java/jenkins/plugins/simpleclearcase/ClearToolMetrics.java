@@ -0,0 +1,360 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+/**
+ * How much cleartool the plugin runs, for all jobs. Every cleartool command is timed per 
+ * subcommand in a latency histogram, and the bytes read from cleartool, the lshistory events 
+ * parsed and filtered and the time spent inside of setview are counted. The global metrics are 
+ * registered over JMX under DOMAIN while the plugin runs, and served as json by 
+ * SimpleClearCaseMetricsAction.
+ */
+public class ClearToolMetrics implements ClearToolMetricsMBean {
+    public static final String DOMAIN = "jenkins.plugins.simpleclearcase";
+
+    // upper bounds in millis of the latency buckets, the last bucket has everything above
+    private static final long[] BOUNDS = {10, 50, 100, 500, 1000, 5000, 10000, 60000, 300000};
+
+    private static final Logger LOGGER = Logger.getLogger(ClearToolMetrics.class.getName());
+    private static final String TYPE = "type=ClearToolMetrics";
+    private static final ClearToolMetrics GLOBAL = new ClearToolMetrics();
+
+    private final ConcurrentMap<String, Command> commands = new ConcurrentHashMap<String, Command>();
+    private final AtomicLong bytesRead       = new AtomicLong();
+    private final AtomicLong entriesParsed   = new AtomicLong();
+    private final AtomicLong entriesFiltered = new AtomicLong();
+    private final AtomicLong setviewNanos    = new AtomicLong();
+    // guarded by this
+    private boolean registered;
+
+    /**
+     * @return the metrics of all jobs
+     */
+    public static ClearToolMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * Registers the metrics over JMX, replacing whatever is registered under the same names, such 
+     * as the metrics of an earlier load of the plugin
+     */
+    public synchronized void register() {
+        // the commands of an earlier load aren't necessarily among ours
+        unregister();
+        registered = true;
+        register(new StandardMBean(this, ClearToolMetricsMBean.class, false), TYPE);
+
+        for (Map.Entry<String, Command> entry : commands.entrySet()) {
+            registerCommand(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Unregisters everything under DOMAIN of this type, must be called when the plugin stops
+     */
+    public synchronized void unregister() {
+        registered = false;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (ObjectName name : server.queryNames(new ObjectName(DOMAIN + ":" + TYPE + ",*"), null)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Couldn't unregister the cleartool metrics from JMX", e);
+        }
+    }
+
+    /**
+     * @param command the cleartool subcommand, such as lshistory
+     * @param nanos how long it took
+     * @param failed if it failed or couldn't be run
+     * @param inView if it ran inside of a setview, its time is also counted as setview time
+     */
+    public void record(String command, long nanos, boolean failed, boolean inView) {
+        command(command).record(nanos, failed);
+        if (inView == true) {
+            setviewNanos.addAndGet(nanos);
+        }
+    }
+
+    /**
+     * Counts a command which was run as a part of another one, such as a command of a batch, 
+     * and hence hasn't any latency of its own
+     */
+    public void count(String command, boolean failed) {
+        command(command).count(failed);
+    }
+
+    public void entryParsed() {
+        entriesParsed.incrementAndGet();
+    }
+
+    public void entryFiltered() {
+        entriesFiltered.incrementAndGet();
+    }
+
+    /**
+     * @param out where cleartool output is written, can be null
+     * @return out, counting the bytes written to it as bytes read from cleartool
+     */
+    public OutputStream countBytes(final OutputStream out) {
+        if (out == null) {
+            return null;
+        }
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytesRead.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytesRead.addAndGet(len);
+            }
+        };
+    }
+
+    /**
+     * @return the metrics of command, null if it hasn't been run
+     */
+    public Command getCommand(String command) {
+        return commands.get(command);
+    }
+
+    public long getInvocations() {
+        long ret = 0;
+        for (Command c : commands.values()) {
+            ret += c.getInvocations();
+        }
+        return ret;
+    }
+
+    public long getFailures() {
+        long ret = 0;
+        for (Command c : commands.values()) {
+            ret += c.getFailures();
+        }
+        return ret;
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public long getEntriesParsed() {
+        return entriesParsed.get();
+    }
+
+    public long getEntriesFiltered() {
+        return entriesFiltered.get();
+    }
+
+    public long getSetviewMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(setviewNanos.get());
+    }
+
+    public String[] getCommands() {
+        return new TreeMap<String, Command>(commands).keySet().toArray(new String[0]);
+    }
+
+    /**
+     * @return the metrics as a json object, the commands by name
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\"invocations\":").append(getInvocations());
+        sb.append(",\"failures\":").append(getFailures());
+        sb.append(",\"bytesRead\":").append(getBytesRead());
+        sb.append(",\"entriesParsed\":").append(getEntriesParsed());
+        sb.append(",\"entriesFiltered\":").append(getEntriesFiltered());
+        sb.append(",\"setviewMillis\":").append(getSetviewMillis());
+        sb.append(",\"histogramBounds\":");
+        appendArray(sb, BOUNDS);
+        sb.append(",\"commands\":{");
+
+        boolean first = true;
+        for (Map.Entry<String, Command> entry : new TreeMap<String, Command>(commands).entrySet()) {
+            Command c = entry.getValue();
+            sb.append(first ? "" : ",").append('"').append(entry.getKey()).append("\":{");
+            sb.append("\"invocations\":").append(c.getInvocations());
+            sb.append(",\"failures\":").append(c.getFailures());
+            sb.append(",\"totalMillis\":").append(c.getTotalMillis());
+            sb.append(",\"maxMillis\":").append(c.getMaxMillis());
+            sb.append(",\"histogram\":");
+            appendArray(sb, c.getHistogram());
+            sb.append('}');
+            first = false;
+        }
+        return sb.append("}}").toString();
+    }
+
+    private Command command(String command) {
+        Command ret = commands.get(command);
+        if (ret == null) {
+            Command created = new Command();
+            ret = commands.putIfAbsent(command, created);
+            if (ret == null) {
+                ret = created;
+                registerCommand(command, created);
+            }
+        }
+        return ret;
+    }
+
+    private synchronized void registerCommand(String command, Command metrics) {
+        if (registered == true) {
+            register(new StandardMBean(metrics, CommandMBean.class, false), 
+                     TYPE + ",command=" + ObjectName.quote(command));
+        }
+    }
+
+    private static void register(StandardMBean mbean, String properties) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+            // a registration left by an earlier classloader would show stale metrics
+            if (server.isRegistered(name) == true) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(mbean, name);
+        } catch (JMException e) {
+            // the metrics are still counted and served as json
+            LOGGER.log(Level.WARNING, "Couldn't register " + properties + " over JMX", e);
+        }
+    }
+
+    private static void appendArray(StringBuilder sb, long[] values) {
+        sb.append('[');
+        for (int i = 0; i < values.length; i++) {
+            sb.append((i > 0) ? "," : "").append(values[i]);
+        }
+        sb.append(']');
+    }
+
+    /**
+     * The metrics of a cleartool subcommand over JMX
+     */
+    public interface CommandMBean {
+        long getInvocations();
+
+        long getFailures();
+
+        long getTotalMillis();
+
+        long getMaxMillis();
+
+        long[] getHistogram();
+
+        long[] getHistogramBounds();
+    }
+
+    /**
+     * The invocations of a cleartool subcommand and a histogram of their latency
+     */
+    public static class Command implements CommandMBean {
+        private final AtomicLong invocations = new AtomicLong();
+        private final AtomicLong failures    = new AtomicLong();
+        private final AtomicLong totalNanos  = new AtomicLong();
+        private final AtomicLong maxNanos    = new AtomicLong();
+        private final AtomicLongArray buckets = new AtomicLongArray(BOUNDS.length + 1);
+
+        void record(long nanos, boolean failed) {
+            count(failed);
+            totalNanos.addAndGet(nanos);
+
+            long max = maxNanos.get();
+            while (nanos > max && maxNanos.compareAndSet(max, nanos) == false) {
+                max = maxNanos.get();
+            }
+
+            long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+            int i = 0;
+            while (i < BOUNDS.length && millis > BOUNDS[i]) {
+                i++;
+            }
+            buckets.incrementAndGet(i);
+        }
+
+        void count(boolean failed) {
+            invocations.incrementAndGet();
+            if (failed == true) {
+                failures.incrementAndGet();
+            }
+        }
+
+        public long getInvocations() {
+            return invocations.get();
+        }
+
+        public long getFailures() {
+            return failures.get();
+        }
+
+        public long getTotalMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(totalNanos.get());
+        }
+
+        public long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        }
+
+        /**
+         * @return the number of timed invocations in each bucket, the bucket at i is up to 
+         *         getHistogramBounds()[i] millis, the last one has the rest
+         */
+        public long[] getHistogram() {
+            long[] ret = new long[buckets.length()];
+            for (int i = 0; i < ret.length; i++) {
+                ret[i] = buckets.get(i);
+            }
+            return ret;
+        }
+
+        public long[] getHistogramBounds() {
+            return BOUNDS.clone();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import hudson.Launcher;
+import hudson.Proc;
+import hudson.model.TaskListener;
+import hudson.util.ArgumentListBuilder;
+
+/**
+ * A long lived interactive cleartool process which is started inside of a view. Commands are
+ * written to stdin of the process, one at a time, and as cleartool is started with -status it 
+ * reports the exit status of every command. A status line can also be part of the output, such 
+ * as a checkin comment of lshistory, hence every command is followed by an echo of a marker with 
+ * a nonce, and the status line right before the marker is the status of the command.
+ * 
+ * A session isn't thread safe, it is handed to one thread at a time by ClearToolSessionPool.
+ */
+public class ClearToolSession {
+    private static final String SETVIEW        = "setview";
+    private static final String PARAM_EXEC     = "-exec";
+    private static final String PARAM_STATUS   = "-status";
+    private static final String QUIT           = "quit";
+    private static final String PROMPT         = "cleartool> ";
+    private static final String SHELL_ECHO     = "shell echo ";
+    private static final String MARKER         = "@@simpleclearcase-%s-%d";
+    private static final Pattern STATUS_LINE   = Pattern.compile("^Command \\d+ returned status (\\d+)\\s*$");
+
+    // identity marker put on the queue when stdout of the process is closed
+    private static final String EOF = new String("EOF");
+
+    private final ClearToolSessionPool.SessionKey key;
+    private final Proc proc;
+    private final Writer stdin;
+    private final BlockingQueue<String> lines = new LinkedBlockingQueue<String>();
+    private final ListenerStream stderr;
+    private final String nonce = Long.toHexString(System.nanoTime());
+    private int executed;
+    private volatile long lastUsed;
+    private boolean broken;
+
+    private ClearToolSession(ClearToolSessionPool.SessionKey key, Proc proc, ListenerStream stderr) {
+        this.key      = key;
+        this.proc     = proc;
+        this.stderr   = stderr;
+        this.stdin    = new OutputStreamWriter(proc.getStdin());
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * @param key the pool key of the session
+     * @param launcher where to start cleartool
+     * @param viewname the view which the session is started in
+     * @return a started session
+     * @throws IOException if the process couldn't be started
+     */
+    public static ClearToolSession start(ClearToolSessionPool.SessionKey key, 
+                                                   Launcher launcher, String viewname) throws IOException {
+        ArgumentListBuilder inner = new ArgumentListBuilder();
+        inner.add(ClearTool.getExecutable());
+        inner.add(PARAM_STATUS);
+
+        ArgumentListBuilder cmd = new ArgumentListBuilder();
+        cmd.add(ClearTool.getExecutable());
+        cmd.add(SETVIEW);
+        cmd.add(PARAM_EXEC);
+        cmd.add(inner.toStringWithQuote());
+        cmd.add(viewname);
+
+        ListenerStream stderr = new ListenerStream();
+        Proc proc = launcher.launch().cmds(cmd).stderr(stderr).readStdout().writeStdin().start();
+
+        final ClearToolSession session = new ClearToolSession(key, proc, stderr);
+        final BufferedReader out = new BufferedReader(new InputStreamReader(proc.getStdout()));
+
+        // stdout is pumped by a separate thread so that a command can time out and be interrupted
+        Thread pump = new Thread("simpleclearcase session " + viewname) {
+            @Override
+            public void run() {
+                try {
+                    String line;
+                    while ((line = out.readLine()) != null) {
+                        session.lines.add(line);
+                    }
+                } catch (IOException e) {
+                    // handled as end of stream
+                } finally {
+                    session.lines.add(EOF);
+                }
+            }
+        };
+        pump.setDaemon(true);
+        pump.start();
+        return session;
+    }
+
+    /**
+     * @param cmd the cleartool command, without cleartool prefix
+     * @param out the output of the command is written to out, can be null
+     * @param listener error output of the command is written to listener, can be null
+     * @param timeout maximum number of milliseconds to wait for the command
+     * @return the exit status of the command
+     * @throws IOException if the session died or timed out, the session is then broken
+     * @throws InterruptedException
+     */
+    public int execute(ArgumentListBuilder cmd, OutputStream out, TaskListener listener, long timeout) 
+                                                                throws IOException, InterruptedException {
+        if (broken == true) {
+            throw new IOException("ClearToolSession: session is broken, view: " + key.getViewname());
+        }
+        // pessimistic, we only clear it if the command finishes as expected
+        broken = true;
+        stderr.setListener(listener);
+
+        try {
+            String marker = String.format(MARKER, nonce, ++executed);
+
+            stdin.write(cmd.toStringWithQuote());
+            stdin.write('\n');
+            stdin.write(SHELL_ECHO + marker);
+            stdin.write('\n');
+            stdin.flush();
+
+            long deadline = System.currentTimeMillis() + timeout;
+            // a line is written to out once we know that it isn't the status line of the command
+            String previous = null;
+
+            while (true) {
+                String line = nextLine(cmd, timeout, deadline);
+
+                if (line.equals(marker)) {
+                    break;
+                }
+                if (previous != null && out != null) {
+                    out.write(previous.getBytes());
+                    out.write('\n');
+                }
+                previous = line;
+            }
+
+            Matcher m = STATUS_LINE.matcher((previous != null) ? previous : "");
+            if (m.matches() == false) {
+                throw new IOException("ClearToolSession: no status before the marker of: " + cmd.toStringWithQuote());
+            }
+            // the status of the echo, such that nothing of this command is left for the next
+            if (STATUS_LINE.matcher(nextLine(cmd, timeout, deadline)).matches() == false) {
+                throw new IOException("ClearToolSession: no status after the marker of: " + cmd.toStringWithQuote());
+            }
+
+            broken = false;
+            lastUsed = System.currentTimeMillis();
+            return Integer.parseInt(m.group(1));
+        } finally {
+            stderr.setListener(null);
+        }
+    }
+
+    /**
+     * @return the next line of output, without prompt
+     * @throws IOException if cleartool exited or the command timed out
+     */
+    private String nextLine(ArgumentListBuilder cmd, long timeout, long deadline) 
+                                                                throws IOException, InterruptedException {
+        String line = lines.poll(deadline - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+
+        if (line == null) {
+            throw new IOException(String.format("ClearToolSession: timed out after %d ms executing: %s",
+                                                timeout, cmd.toStringWithQuote()));
+        }
+        if (line == EOF) {
+            throw new IOException("ClearToolSession: cleartool exited while executing: " 
+                                                                         + cmd.toStringWithQuote());
+        }
+
+        // cleartool may prompt even if stdin isn't a terminal
+        while (line.startsWith(PROMPT)) {
+            line = line.substring(PROMPT.length());
+        }
+        return line;
+    }
+
+    public ClearToolSessionPool.SessionKey getKey() {
+        return key;
+    }
+
+    public boolean isBroken() {
+        return broken;
+    }
+
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    /**
+     * Asks cleartool to quit and kills the process
+     */
+    public void close() {
+        try {
+            stdin.write(QUIT);
+            stdin.write('\n');
+            stdin.close();
+        } catch (IOException e) {
+            // the process is most likely already gone
+        }
+
+        try {
+            proc.kill();
+        } catch (IOException e) {
+            // nothing more we can do
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Forwards stderr of the process to the listener of the command being executed, as the session
+     * outlives the listener which started it.
+     */
+    private static class ListenerStream extends OutputStream {
+        private volatile TaskListener listener;
+
+        public void setListener(TaskListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            TaskListener l = listener;
+            if (l != null) {
+                l.getLogger().write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            TaskListener l = listener;
+            if (l != null) {
+                PrintStream logger = l.getLogger();
+                logger.write(b, off, len);
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import hudson.Extension;
+import hudson.Launcher;
+import hudson.model.PeriodicWork;
+import hudson.remoting.VirtualChannel;
+
+/**
+ * Keeps idle ClearToolSessions per (node, view) such that polling and checkout don't have to
+ * start a new cleartool process for every command. Sessions are handed out to one thread at a 
+ * time, sessions that have been idle for too long or that had an error are closed.
+ */
+public class ClearToolSessionPool {
+    public static final long IDLE_TIMEOUT    = TimeUnit.MINUTES.toMillis(10);
+    public static final long COMMAND_TIMEOUT = TimeUnit.MINUTES.toMillis(60);
+    // idle sessions kept for each (node, view), more sessions can be in use concurrently
+    public static final int MAX_IDLE_PER_KEY = 4;
+
+    private static final ClearToolSessionPool INSTANCE = new ClearToolSessionPool();
+
+    private final Map<SessionKey, LinkedList<ClearToolSession>> idle = 
+                                                      new HashMap<SessionKey, LinkedList<ClearToolSession>>();
+    // after closeAll sessions are closed on release rather than kept
+    private boolean closed;
+
+    public static ClearToolSessionPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * @param launcher decides on which node the session runs
+     * @param viewname
+     * @return an idle session for the node and view, or a newly started one
+     * @throws IOException if a new session couldn't be started
+     */
+    public ClearToolSession borrow(Launcher launcher, String viewname) throws IOException {
+        SessionKey key = new SessionKey(launcher.getChannel(), viewname);
+
+        synchronized (this) {
+            LinkedList<ClearToolSession> sessions = idle.get(key);
+
+            // most recently used first, the ones at the end are the first to time out
+            while (sessions != null && sessions.isEmpty() == false) {
+                ClearToolSession session = sessions.removeFirst();
+
+                if (isExpired(session, System.currentTimeMillis()) == false) {
+                    return session;
+                }
+                session.close();
+            }
+        }
+        return ClearToolSession.start(key, launcher, viewname);
+    }
+
+    /**
+     * @param session a session from borrow
+     * @param healthy false if the caller had an error with the session, it is then closed
+     */
+    public void release(ClearToolSession session, boolean healthy) {
+        if (healthy == false || session.isBroken() == true) {
+            session.close();
+            return;
+        }
+
+        synchronized (this) {
+            LinkedList<ClearToolSession> sessions = idle.get(session.getKey());
+
+            if (sessions == null && closed == false) {
+                sessions = new LinkedList<ClearToolSession>();
+                idle.put(session.getKey(), sessions);
+            }
+
+            if (sessions != null && sessions.size() < MAX_IDLE_PER_KEY) {
+                sessions.addFirst(session);
+                return;
+            }
+        }
+        session.close();
+    }
+
+    /**
+     * Closes all sessions that have been idle for longer than IDLE_TIMEOUT
+     */
+    public void evictIdle() {
+        List<ClearToolSession> expired = new ArrayList<ClearToolSession>();
+        long now = System.currentTimeMillis();
+
+        synchronized (this) {
+            for (Iterator<LinkedList<ClearToolSession>> it = idle.values().iterator(); it.hasNext();) {
+                LinkedList<ClearToolSession> sessions = it.next();
+
+                for (Iterator<ClearToolSession> sit = sessions.iterator(); sit.hasNext();) {
+                    ClearToolSession session = sit.next();
+                    if (isExpired(session, now) == true) {
+                        expired.add(session);
+                        sit.remove();
+                    }
+                }
+
+                if (sessions.isEmpty() == true) {
+                    it.remove();
+                }
+            }
+        }
+
+        // closing may block on the channel so we do it outside of the lock
+        for (ClearToolSession session : expired) {
+            session.close();
+        }
+    }
+
+    /**
+     * Closes all idle sessions, the sessions in use are closed when they are released
+     */
+    public void closeAll() {
+        List<ClearToolSession> all = new ArrayList<ClearToolSession>();
+
+        synchronized (this) {
+            closed = true;
+            for (LinkedList<ClearToolSession> sessions : idle.values()) {
+                all.addAll(sessions);
+            }
+            idle.clear();
+        }
+
+        for (ClearToolSession session : all) {
+            session.close();
+        }
+    }
+
+    private static boolean isExpired(ClearToolSession session, long now) {
+        return now - session.getLastUsed() > IDLE_TIMEOUT;
+    }
+
+    /**
+     * A session is bound to a node, through its channel, and a view
+     */
+    public static class SessionKey {
+        private final VirtualChannel channel;
+        private final String viewname;
+
+        public SessionKey(VirtualChannel channel, String viewname) {
+            this.channel  = channel;
+            this.viewname = viewname;
+        }
+
+        public String getViewname() {
+            return viewname;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o instanceof SessionKey == false) {
+                return false;
+            }
+            SessionKey other = (SessionKey) o;
+            // a channel is unique for each connected node
+            return channel == other.channel && viewname.equals(other.viewname);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(channel) * 31 + viewname.hashCode();
+        }
+    }
+
+    /**
+     * Regularly closes sessions that aren't used anymore
+     */
+    @Extension
+    public static class IdleSessionEvictor extends PeriodicWork {
+        @Override
+        public long getRecurrencePeriod() {
+            return MIN;
+        }
+
+        @Override
+        protected void doRun() {
+            getInstance().evictIdle();
+        }
+    }
+}
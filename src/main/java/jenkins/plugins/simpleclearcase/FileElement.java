@@ -27,12 +27,13 @@ package jenkins.plugins.simpleclearcase;
 /**
  * @author Sam Tavakoli
  *
- * This class represents a file element inside the repository. It's a simple container 
+ * This class represents a file element inside the repository. It's a simple container, the path 
+ * is a node in the PathTrie shared by all elements
  */
 public class FileElement {
 	public static final String INIT_VERSION = "0"; 
 	
-	private String filePath;
+	private PathNode node;
 	private String version;
 	
 	public FileElement() {
@@ -49,11 +50,18 @@ public class FileElement {
 	}
 	
 	public String getFilePath() {
-		return filePath;
+		return (node != null) ? node.getPath() : null;
 	}
 	
 	public void setFilePath(String path) {
-		this.filePath = path;
+		this.node = PathTrie.global().nodeOf(path);
+	}
+	
+	/**
+	 * @return the node of the path, null if there isn't any path
+	 */
+	public PathNode getNode() {
+		return node;
 	}
 	
 	public String getVersion() {
@@ -28,37 +28,87 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import jenkins.plugins.simpleclearcase.util.DateUtil;
+import jenkins.plugins.simpleclearcase.util.DateCodec;
+import jenkins.plugins.simpleclearcase.util.StringPool;
 
+/**
+ * The latest commit date of each load rule. A map is immutable, the load rules are kept sorted 
+ * in a table and the dates are epoch millis at the same ordinal, UNKNOWN where there isn't any 
+ * date. Two maps are compared and merged by walking both tables at once, without allocating.
+ * 
+ * Builds from older versions stored a HashMap, which is converted by readResolve.
+ */
 public class LoadRuleDateMap {
+	public static final long UNKNOWN = DateCodec.INVALID_DATE;
+
 	private static final String OUTPUT_FORMAT = "[%s, %s]";
-	//due to synchronization problem with Calendar we need to have an private instance to DateUtil
-	private DateUtil dateUtil;
+	private static final String[] NO_RULES    = new String[0];
+	private static final long[] NO_DATES      = new long[0];
+
+	// never changed once the map is built, they aren't final only for the sake of XStream
+	private String[] loadRules;
+	private long[] dates;
+	// only set when read from an older build
 	private Map<String, Date> map;
-	
+
 	public LoadRuleDateMap() {
-		map = new HashMap<String, Date>();
-		dateUtil = new DateUtil();
+		this(NO_RULES, NO_DATES);
 	}
-	
+
+	private LoadRuleDateMap(String[] loadRules, long[] dates) {
+		this.loadRules = loadRules;
+		this.dates     = dates;
+	}
+
 	public Date getBuiltTime(String loadRule) {
-		return map.get(loadRule);
+		long time = getTime(loadRule);
+		return (time != UNKNOWN) ? new Date(time) : null;
 	}
-	
-	public void setBuildTime(String loadRule, Date date) {
-		map.put(loadRule, date);
+
+	/**
+	 * @param loadRule
+	 * @return the date of loadRule in epoch millis, UNKNOWN if there isn't any
+	 */
+	public long getTime(String loadRule) {
+		int i = Arrays.binarySearch(loadRules, loadRule);
+		return (i >= 0) ? dates[i] : UNKNOWN;
 	}
-	
+
+	/**
+	 * @return the number of load rules
+	 */
+	public int size() {
+		return loadRules.length;
+	}
+
+	/**
+	 * @param ordinal from 0 to size - 1, in the order of the load rules
+	 */
+	public String getLoadRule(int ordinal) {
+		return loadRules[ordinal];
+	}
+
+	/**
+	 * @param ordinal from 0 to size - 1, in the order of the load rules
+	 * @return the date in epoch millis, UNKNOWN if there isn't any
+	 */
+	public long getTime(int ordinal) {
+		return dates[ordinal];
+	}
+
 	public Collection<Date> getDates() {
-		return map.values();
+		List<Date> ret = new ArrayList<Date>(dates.length);
+		for (long time : dates) {
+			ret.add((time != UNKNOWN) ? new Date(time) : null);
+		}
+		return ret;
 	}
 	
 	public boolean isEmpty() {
-	    return map.isEmpty();
+	    return loadRules.length == 0;
 	}
 	
 	/**
@@ -66,40 +116,182 @@ public class LoadRuleDateMap {
 	 * @return true if this LoadRuleDateMap has a date before compare date, for a specific load rule  
 	 */
 	public boolean isBefore(LoadRuleDateMap compare) {
-	    for (Map.Entry<String, Date> entry : map.entrySet()) {
-	        
-			//fetch the date for the specific load rule
-			Date compareDate = compare.getBuiltTime(entry.getKey());
-			
-			// if our date is null, but compare isn't then we return true
-			// since it would indicate that remote has something of value, compared
-			// to nothing, which is in our set.
-			if (entry.getValue() == null && compareDate != null) {
-			    return true;
+		int j = 0;
+		for (int i = 0; i < loadRules.length; i++) {
+			j = seek(compare.loadRules, j, loadRules[i]);
+			long compareTime = UNKNOWN;
+			if (j < compare.loadRules.length && same(compare.loadRules[j], loadRules[i]) == true) {
+				compareTime = compare.dates[j++];
 			}
-			
-			// compare the entries date for the load rule against the comparisons date
-			if (compareDate != null && entry.getValue().before(compareDate)) {
+
+			// an unknown date of ours is before any date of compare, as compare has something 
+			// of value compared to nothing
+			if (compareTime != UNKNOWN && (dates[i] == UNKNOWN || dates[i] < compareTime)) {
 				return true;
 			}
 		}
 		return false;
 	}
 
+	/**
+	 * @param other
+	 * @return a map with the load rules of both maps and the latest date of each, this if 
+	 *         other doesn't have anything newer
+	 */
+	public LoadRuleDateMap merge(LoadRuleDateMap other) {
+		// count first, such that nothing is allocated unless other has something new
+		int size      = 0;
+		boolean newer = false;
+		for (int i = 0, j = 0; i < loadRules.length || j < other.loadRules.length; size++) {
+			int c = compare(i, other, j);
+			if (c > 0 || (c == 0 && other.dates[j] > dates[i])) {
+				newer = true;
+			}
+			i += (c <= 0) ? 1 : 0;
+			j += (c >= 0) ? 1 : 0;
+		}
+		if (newer == false) {
+			return this;
+		}
+
+		String[] mergedRules = new String[size];
+		long[] mergedDates   = new long[size];
+		for (int i = 0, j = 0, k = 0; k < size; k++) {
+			int c = compare(i, other, j);
+			mergedRules[k] = (c <= 0) ? loadRules[i] : other.loadRules[j];
+			mergedDates[k] = Math.max((c <= 0) ? dates[i] : UNKNOWN, (c >= 0) ? other.dates[j] : UNKNOWN);
+			i += (c <= 0) ? 1 : 0;
+			j += (c >= 0) ? 1 : 0;
+		}
+		return new LoadRuleDateMap(mergedRules, mergedDates);
+	}
+
+	/**
+	 * @param loadRule
+	 * @param date null for an unknown date
+	 * @return a map with the date of loadRule set to date, and the rest as in this
+	 */
+	public LoadRuleDateMap with(String loadRule, Date date) {
+		Builder b = new Builder();
+		for (int i = 0; i < loadRules.length; i++) {
+			b.put(loadRules[i], dates[i]);
+		}
+		return b.put(loadRule, date).build();
+	}
+
+	/**
+	 * Converts the map of older builds, and pools the load rules as read ones aren't
+	 */
+	private Object readResolve() {
+		Builder b = new Builder();
+		if (map != null) {
+			for (Map.Entry<String, Date> entry : map.entrySet()) {
+				b.put(entry.getKey(), entry.getValue());
+			}
+		} else if (loadRules != null && dates != null && loadRules.length == dates.length) {
+			for (int i = 0; i < loadRules.length; i++) {
+				b.put(loadRules[i], dates[i]);
+			}
+		}
+		return b.build();
+	}
+
+	/**
+	 * @return negative if only the load rule of this is left or it comes first, positive if only 
+	 *         the one of other is left or it comes first, 0 if they are the same
+	 */
+	private int compare(int i, LoadRuleDateMap other, int j) {
+		if (j >= other.loadRules.length) {
+			return -1;
+		}
+		if (i >= loadRules.length) {
+			return 1;
+		}
+		return same(loadRules[i], other.loadRules[j]) ? 0 : loadRules[i].compareTo(other.loadRules[j]);
+	}
+
+	/**
+	 * Load rules are pooled, hence the same load rule is almost always the same instance
+	 */
+	private static boolean same(String rule1, String rule2) {
+		return rule1 == rule2 || rule1.equals(rule2);
+	}
+
+	/**
+	 * @return the first index from start whose load rule isn't before loadRule
+	 */
+	private static int seek(String[] loadRules, int start, String loadRule) {
+		while (start < loadRules.length && loadRules[start] != loadRule 
+		                                && loadRules[start].compareTo(loadRule) < 0) {
+			start++;
+		}
+		return start;
+	}
+
 	private List<String> getAsList() {
 		List<String> ret = new ArrayList<String>();
 
-		for (Map.Entry<String, Date> entry : map.entrySet()) {
+		for (int i = 0; i < loadRules.length; i++) {
 			//we create a string with format
-			ret.add(String.format(OUTPUT_FORMAT, entry.getKey(),  
-					         (entry.getValue() != null) ? dateUtil.formatDate(entry.getValue()) : null));
+			ret.add(String.format(OUTPUT_FORMAT, loadRules[i],  
+					       (dates[i] != UNKNOWN) ? DateCodec.local().formatXml(new Date(dates[i])) : null));
 		}
 		return ret;
 	}
 
 	public String toString() {
-	    if (map.isEmpty()) { return "LoadRuleDateMap is empty"; }
+	    if (isEmpty()) { return "LoadRuleDateMap is empty"; }
 	    
 		return Arrays.toString(getAsList().toArray());
 	}
+
+	/**
+	 * Collects the dates of a new map, a load rule put twice keeps the last date
+	 */
+	public static class Builder {
+		private String[] loadRules = new String[8];
+		private long[] dates       = new long[8];
+		private int size;
+
+		public Builder put(String loadRule, Date date) {
+			return put(loadRule, (date != null) ? date.getTime() : UNKNOWN);
+		}
+
+		public Builder put(String loadRule, long time) {
+			for (int i = 0; i < size; i++) {
+				if (loadRules[i].equals(loadRule) == true) {
+					dates[i] = time;
+					return this;
+				}
+			}
+
+			if (size == loadRules.length) {
+				loadRules = Arrays.copyOf(loadRules, size * 2);
+				dates     = Arrays.copyOf(dates, size * 2);
+			}
+			loadRules[size] = StringPool.global().intern(loadRule);
+			dates[size]     = time;
+			size++;
+			return this;
+		}
+
+		public LoadRuleDateMap build() {
+			String[] sortedRules = Arrays.copyOf(loadRules, size);
+			long[] sortedDates   = Arrays.copyOf(dates, size);
+
+			// there are few load rules, an insertion sort keeps the dates along
+			for (int i = 1; i < size; i++) {
+				String rule = sortedRules[i];
+				long time   = sortedDates[i];
+				int j = i - 1;
+				for (; j >= 0 && sortedRules[j].compareTo(rule) > 0; j--) {
+					sortedRules[j + 1] = sortedRules[j];
+					sortedDates[j + 1] = sortedDates[j];
+				}
+				sortedRules[j + 1] = rule;
+				sortedDates[j + 1] = time;
+			}
+			return new LoadRuleDateMap(sortedRules, sortedDates);
+		}
+	}
 }
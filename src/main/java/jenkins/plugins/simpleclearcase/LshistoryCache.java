@@ -0,0 +1,281 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import hudson.util.ArgumentListBuilder;
+
+/**
+ * The results of lshistory shared by all jobs, such that jobs polling the same load rules in the 
+ * same view don't run the same lshistory one after the other. A result is keyed by the view, the 
+ * filter and the lshistory command, which holds the branch, the load rule, the since date and 
+ * the format. A result is too old for a job after the time to live of that job, and the least 
+ * recently used result is evicted when the cache is full. The size is global.
+ * 
+ * A lshistory which is running is a flight, the first to board a key leads the flight and runs 
+ * lshistory, anyone boarding the same key before it has landed waits for the result instead of 
+ * running the same lshistory at the same time. Leadership belongs to the boarding, not to the 
+ * thread, hence a caller must not board a key twice before landing it.
+ * 
+ * Entries are mutable, hence a cached changelog is copied both when it is put and when it is got.
+ */
+public class LshistoryCache {
+    private static final LshistoryCache GLOBAL = new LshistoryCache();
+
+    private static final long NANOS_PER_SECOND = 1000L * 1000L * 1000L;
+    private static final char KEY_SEPARATOR    = '\n';
+
+    private final Map<String, Item> items     = new LinkedHashMap<String, Item>(16, 0.75f, true);
+    private final Map<String, Flight> flights = new HashMap<String, Flight>();
+    private long hits;
+    private long misses;
+    private long coalesced;
+
+    /**
+     * @return the cache shared by all jobs
+     */
+    public static LshistoryCache global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @param viewname
+     * @param filter
+     * @param cmd the lshistory command, without cleartool prefix
+     * @return the key of the result of cmd
+     */
+    public static String keyOf(String viewname, boolean filter, ArgumentListBuilder cmd) {
+        return viewname + KEY_SEPARATOR + filter + KEY_SEPARATOR + cmd.toStringWithQuote();
+    }
+
+    /**
+     * @param key
+     * @param ttl in seconds, of the caller
+     * @return the result of key, null if there isn't any younger than ttl. An older result is 
+     *         kept, as other jobs can have a longer ttl, it is evicted when the cache is full
+     */
+    public synchronized Item get(String key, int ttl) {
+        Item item = items.get(key);
+
+        if (item != null && System.nanoTime() - item.created >= ttl * NANOS_PER_SECOND) {
+            item = null;
+        }
+
+        if (item == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return item;
+    }
+
+    /**
+     * @param key
+     * @param item
+     * @param size the maximum number of results, 0 if nothing is to be cached
+     */
+    public synchronized void put(String key, Item item, int size) {
+        if (size <= 0) {
+            return;
+        }
+        items.put(key, item);
+
+        // the least recently used results come first
+        while (items.size() > size) {
+            items.remove(items.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * @param key
+     * @return the boarding of the flight of key, which leads it if the flight was started by this call
+     */
+    public synchronized Boarding board(String key) {
+        Flight flight = flights.get(key);
+
+        if (flight == null) {
+            flight = new Flight(key);
+            flights.put(key, flight);
+            return new Boarding(flight, true);
+        }
+        coalesced++;
+        return new Boarding(flight, false);
+    }
+
+    /**
+     * Ends a flight, must be called by its leader whether lshistory succeeded or not
+     * @param boarding the boarding which leads the flight
+     * @param result the result, null if lshistory failed
+     * @param size the maximum number of results, 0 if nothing is to be cached
+     * @throws IllegalStateException if boarding doesn't lead its flight
+     */
+    public void land(Boarding boarding, Item result, int size) {
+        if (boarding.isLeader() == false) {
+            throw new IllegalStateException("Only the leader can land the flight of " + boarding.flight.key);
+        }
+        Flight flight = boarding.flight;
+
+        synchronized (this) {
+            if (flights.get(flight.key) == flight) {
+                flights.remove(flight.key);
+            }
+            if (result != null) {
+                put(flight.key, result, size);
+            }
+        }
+        flight.result = result;
+        flight.landed.countDown();
+    }
+
+    public synchronized void clear() {
+        items.clear();
+    }
+
+    public synchronized int size() {
+        return items.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of times a lshistory waited for an identical one instead of running
+     */
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    /**
+     * @return the number of lshistory running
+     */
+    public synchronized int getInFlight() {
+        return flights.size();
+    }
+
+    /**
+     * The result of a probe or of a full lshistory
+     */
+    public static class Item {
+        private final long created = System.nanoTime();
+        private final Date latest;
+        private final List<SimpleClearCaseChangeLogEntry> entries;
+
+        private Item(Date latest, List<SimpleClearCaseChangeLogEntry> entries) {
+            this.latest  = latest;
+            this.entries = entries;
+        }
+
+        /**
+         * @param latest the latest date found by a probe, null if it didn't find any
+         */
+        public static Item probe(Date latest) {
+            return new Item(latest, null);
+        }
+
+        /**
+         * @param entries are copied
+         */
+        public static Item entries(List<SimpleClearCaseChangeLogEntry> entries) {
+            return new Item(null, copy(entries));
+        }
+
+        /**
+         * @return the latest date found by a probe, null if it didn't find any
+         */
+        public Date getLatest() {
+            return latest;
+        }
+
+        /**
+         * @return a copy of the entries, null if this is the result of a probe
+         */
+        public List<SimpleClearCaseChangeLogEntry> getEntries() {
+            return (entries != null) ? copy(entries) : null;
+        }
+
+        private static List<SimpleClearCaseChangeLogEntry> copy(List<SimpleClearCaseChangeLogEntry> entries) {
+            List<SimpleClearCaseChangeLogEntry> ret = 
+                                            new ArrayList<SimpleClearCaseChangeLogEntry>(entries.size());
+            for (SimpleClearCaseChangeLogEntry e : entries) {
+                ret.add(e.copy());
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * A lshistory which is running
+     */
+    private static class Flight {
+        private final String key;
+        private final CountDownLatch landed = new CountDownLatch(1);
+        private volatile Item result;
+
+        private Flight(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * A seat on a flight, the one which started the flight leads it
+     */
+    public static class Boarding {
+        private final Flight flight;
+        private final boolean leader;
+
+        private Boarding(Flight flight, boolean leader) {
+            this.flight = flight;
+            this.leader = leader;
+        }
+
+        /**
+         * @return true if this boarding started the flight, and has to run lshistory and land it
+         */
+        public boolean isLeader() {
+            return leader;
+        }
+
+        /**
+         * @return the result, null if lshistory failed for the leader
+         * @throws InterruptedException
+         */
+        public Item await() throws InterruptedException {
+            flight.landed.await();
+            return flight.result;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import jenkins.plugins.simpleclearcase.util.DateCodec;
+import jenkins.plugins.simpleclearcase.util.DebugHelper;
+
+import hudson.console.LineTransformationOutputStream;
+import hudson.model.TaskListener;
+
+/**
+ * Parses the output of lshistory, formatted with LSHISTORY_FORMATTING, one line at a time. 
+ * Entries are handed to an EntryHandler as soon as they are complete, such that the output 
+ * never has to be buffered as a whole.
+ * 
+ * Lines are tokenized in a single pass without regular expressions or date formats, and 
+ * filtered operations are rejected before any field is copied out of the line.
+ */
+public class LshistoryParser {
+    private static final String LOG_PARSE_LINE = "LshistoryParser.parseLine";
+
+    private static final String ADDED_ELEMENT_QUOTATION = "\"";
+    private static final String ADDED_FILE_ELEMENT      = "Added file element";
+    private static final String ADDED_DIRECTORY_ELEMENT = "Added directory element";
+
+    // date, user, path, version, event description, operation and the optional comment
+    private static final int FIELDS            = 7;
+    private static final int OPERATION_FIELD   = 5;
+    private static final String SEPARATOR      = SimpleClearCaseChangeLogEntry.LSHISTORY_SEPARATOR;
+
+    private static final String FILTER_MKBRANCH = "mkbranch";
+    private static final String FILTER_RMBRANCH = "rmbranch";
+
+    private final boolean filter;
+    private final TaskListener listener;
+    private final EntryHandler handler;
+    private final ClearToolMetrics metrics;
+    // %Nd is in the local time of the client
+    private final DateCodec codec;
+    // start index of each field, reused between lines
+    private final int[] starts = new int[FIELDS];
+    private final int[] ends   = new int[FIELDS];
+
+    // the entry which following 'Added element' lines belong to, not yet handed to handler
+    private SimpleClearCaseChangeLogEntry currentEntry;
+    // true if the last entry line was filtered, its 'Added element' lines are skipped as well
+    private boolean skipping;
+
+    /**
+     * @param filter if true, mkbranch and rmbranch events are filtered away
+     * @param listener where parse errors are logged, can be null
+     * @param handler receives every parsed entry
+     */
+    public LshistoryParser(boolean filter, TaskListener listener, EntryHandler handler) {
+        this(filter, listener, handler, null);
+    }
+
+    /**
+     * @param filter if true, mkbranch and rmbranch events are filtered away
+     * @param listener where parse errors are logged, can be null
+     * @param handler receives every parsed entry
+     * @param metrics where parsed and filtered entries are counted, can be null
+     */
+    public LshistoryParser(boolean filter, TaskListener listener, EntryHandler handler, 
+                                                                            ClearToolMetrics metrics) {
+        this.filter   = filter;
+        this.listener = listener;
+        this.handler  = handler;
+        this.metrics  = metrics;
+        this.codec    = DateCodec.local();
+    }
+
+    /**
+     * @param readline a line from lshistory, without line terminator
+     */
+    public void parseLine(String readline) {
+        // empty lines cannot be parsed
+        if (isBlank(readline)) {
+            return;
+        }
+
+        // a commit entry could be split over several lines hence we need to check for additional info
+        if (readline.startsWith(ADDED_FILE_ELEMENT) || readline.startsWith(ADDED_DIRECTORY_ELEMENT)) {
+            if (currentEntry == null) {
+                if (skipping == false) {
+                    DebugHelper.error(listener, "%s: CurrentEntry is null when a ADDED_FILE_ELEMENT or "
+                                            + "ADDED_DIRECTORY_ELEMENT popped up, shouldn't happen. row " 
+                                            + "is: %s", LOG_PARSE_LINE, readline);
+                }
+                return;
+            }
+
+            // with the formatting we have the ELEMENT row wraps the
+            // filepath with quote.
+            int startIndex = readline.indexOf(ADDED_ELEMENT_QUOTATION) + 1;
+            int endIndex   = readline.indexOf(ADDED_ELEMENT_QUOTATION, startIndex);
+
+            currentEntry.addPath(readline.substring(startIndex, endIndex));
+            return;
+        }
+
+        // a new entry line means that the current entry is complete
+        flush();
+
+        int fields = tokenize(readline);
+
+        if (fields > OPERATION_FIELD && isFiltered(readline)) {
+            skipping = true;
+            if (metrics != null) {
+                metrics.entryFiltered();
+            }
+            return;
+        }
+
+        // here we actually parse the entry and build an entry from it
+        currentEntry = parseEntry(readline, fields);
+
+        if (currentEntry == null) {
+            DebugHelper.error(listener, "%s: Wasn't able to parse row, hence we skip it, " 
+                                                            + "line: %s", LOG_PARSE_LINE, readline);
+        } else if (metrics != null) {
+            metrics.entryParsed();
+        }
+    }
+
+    /**
+     * Hands the last entry to the handler, must be called when there isn't any more output 
+     */
+    public void finish() {
+        flush();
+    }
+
+    /**
+     * @return an OutputStream which parses everything written to it, finish is called on close
+     */
+    public OutputStream asOutputStream() {
+        return new LineTransformationOutputStream() {
+            @Override
+            protected void eol(byte[] b, int len) throws IOException {
+                // strip the line terminator, as BufferedReader.readLine would
+                while (len > 0 && (b[len - 1] == '\n' || b[len - 1] == '\r')) {
+                    len--;
+                }
+                parseLine(new String(b, 0, len));
+            }
+
+            @Override
+            public void close() throws IOException {
+                super.close();
+                finish();
+            }
+        };
+    }
+
+    private void flush() {
+        if (currentEntry != null) {
+            handler.entry(currentEntry);
+        }
+        currentEntry = null;
+        skipping     = false;
+    }
+
+    /**
+     * Finds the fields of line, the last field takes the rest of the line. 
+     * @return the number of fields found
+     */
+    private int tokenize(String line) {
+        int fields = 0;
+        int start  = 0;
+
+        while (fields < FIELDS - 1) {
+            int end = line.indexOf(SEPARATOR, start);
+            if (end < 0) {
+                break;
+            }
+            starts[fields] = start;
+            ends[fields]   = end;
+            fields++;
+            start = end + SEPARATOR.length();
+        }
+
+        starts[fields] = start;
+        ends[fields]   = line.length();
+        return fields + 1;
+    }
+
+    private boolean isFiltered(String line) {
+        // we filter away events that consist of creation and deletion of branches
+        // if filter is true
+        return filter == true && (fieldEquals(line, OPERATION_FIELD, FILTER_MKBRANCH) 
+                                                   || fieldEquals(line, OPERATION_FIELD, FILTER_RMBRANCH));
+    }
+
+    private boolean fieldEquals(String line, int field, String value) {
+        return ends[field] - starts[field] == value.length() 
+                                           && line.regionMatches(starts[field], value, 0, value.length());
+    }
+
+    private String field(String line, int field) {
+        return line.substring(starts[field], ends[field]);
+    }
+
+    private SimpleClearCaseChangeLogEntry parseEntry(String line, int fields) {
+        if (fields <= OPERATION_FIELD) {
+            return null;
+        }
+
+        // if we cannot parse the date then the whole entry will be
+        // irrelevant and we just return null, calling method will log the line
+        long entryDate = codec.parseNumeric(line, starts[0], ends[0]);
+
+        if (entryDate == DateCodec.INVALID_DATE) {
+            return null;
+        }
+
+        // if there isn't a comment we have an element less
+        String comment = (fields > OPERATION_FIELD + 1) ? field(line, OPERATION_FIELD + 1) : "";
+
+        // the constructor of ChangeLogEntry follows LSHISTORY_FORMATTING
+        // parameter order
+        return new SimpleClearCaseChangeLogEntry(new Date(entryDate), field(line, 1), field(line, 2), 
+                                   field(line, 3), field(line, 4), field(line, OPERATION_FIELD), comment);
+    }
+
+    private static boolean isBlank(String line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Receives entries from the parser as soon as they are complete
+     */
+    public interface EntryHandler {
+        void entry(SimpleClearCaseChangeLogEntry entry);
+    }
+
+    /**
+     * Collects all entries in a list
+     */
+    public static class Collector implements EntryHandler {
+        private final List<SimpleClearCaseChangeLogEntry> entries = new ArrayList<SimpleClearCaseChangeLogEntry>();
+
+        public void entry(SimpleClearCaseChangeLogEntry entry) {
+            entries.add(entry);
+        }
+
+        public List<SimpleClearCaseChangeLogEntry> getEntries() {
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.IOException;
+import java.util.Date;
+
+import jenkins.plugins.simpleclearcase.util.DateCodec;
+
+import hudson.console.LineTransformationOutputStream;
+
+/**
+ * Answers whether there is any event newer than a given date, from lshistory output formatted with
+ * PROBE_FORMATTING. Nothing but the date and operation is fetched from cleartool, and no entries are
+ * built. As soon as a newer event is seen the probe is found, and the caller can stop cleartool. 
+ */
+public class LshistoryProbe extends LineTransformationOutputStream {
+    // only what is needed to date an event and to filter it, see LSHISTORY_FORMATTING. The
+    // separator has a space like the full format, such that it is quoted inside setview -exec
+    public static final String PROBE_FORMATTING = "%Nd| |%o\\n";
+
+    private static final String PROBE_SPLIT_SEQUENCE        = "| |";
+
+    private static final String FILTER_MKBRANCH = "mkbranch";
+    private static final String FILTER_RMBRANCH = "rmbranch";
+
+    private final Date since;
+    private final boolean filter;
+    private final DateCodec codec;
+    private final ClearToolMetrics metrics;
+
+    private Date latest;
+    private boolean found;
+    private boolean exited;
+    private int exitCode;
+
+    /**
+     * @param since the date which an event has to be newer than, null means that any event will do
+     * @param filter if true, mkbranch and rmbranch events are ignored
+     */
+    public LshistoryProbe(Date since, boolean filter) {
+        this(since, filter, null);
+    }
+
+    /**
+     * @param since the date which an event has to be newer than, null means that any event will do
+     * @param filter if true, mkbranch and rmbranch events are ignored
+     * @param metrics where parsed and filtered events are counted, can be null
+     */
+    public LshistoryProbe(Date since, boolean filter, ClearToolMetrics metrics) {
+        this.since    = since;
+        this.filter   = filter;
+        this.metrics  = metrics;
+        this.codec    = DateCodec.local();
+    }
+
+    @Override
+    protected void eol(byte[] b, int len) throws IOException {
+        String line = new String(b, 0, len).trim();
+        int split = line.indexOf(PROBE_SPLIT_SEQUENCE);
+
+        if (split < 0) {
+            return;
+        }
+
+        String operation = line.substring(split + PROBE_SPLIT_SEQUENCE.length());
+        if (filter == true && (operation.equals(FILTER_MKBRANCH) || operation.equals(FILTER_RMBRANCH))) {
+            if (metrics != null) {
+                metrics.entryFiltered();
+            }
+            return;
+        }
+
+        long millis = codec.parseNumeric(line, 0, split);
+        if (millis == DateCodec.INVALID_DATE) {
+            return;
+        }
+        if (metrics != null) {
+            metrics.entryParsed();
+        }
+        Date date = new Date(millis);
+
+        synchronized (this) {
+            if (latest == null || latest.before(date)) {
+                latest = date;
+            }
+
+            // lshistory -since includes events at the since date, those aren't new
+            if (since == null || since.before(date)) {
+                found = true;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return the latest date seen, null if there wasn't any event. If the probe was stopped 
+     *         when found, this is the latest date seen until then
+     */
+    public synchronized Date getLatest() {
+        return latest;
+    }
+
+    public synchronized boolean isFound() {
+        return found;
+    }
+
+    /**
+     * @param exitCode the exit code of the cleartool process writing to the probe
+     */
+    public synchronized void exited(int exitCode) {
+        this.exited   = true;
+        this.exitCode = exitCode;
+        notifyAll();
+    }
+
+    public synchronized int getExitCode() {
+        return exitCode;
+    }
+
+    /**
+     * @return true if the probe was found, false if the process exited before that
+     * @throws InterruptedException
+     */
+    public synchronized boolean awaitFoundOrExit() throws InterruptedException {
+        while (found == false && exited == false) {
+            wait();
+        }
+        return found;
+    }
+}
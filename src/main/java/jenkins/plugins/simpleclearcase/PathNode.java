@@ -0,0 +1,122 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * A path in a PathTrie. A node holds the last piece of its path, from a separator up to the next 
+ * one, and its parent holds the rest. Nodes are canonical, two equal paths in the same trie are 
+ * the same node, hence a path is below another if the other one is among its ancestors.
+ */
+public final class PathNode {
+    private final PathNode parent;
+    private final String piece;
+    // the length of the whole path, such that prefixes can be found without building the path
+    private final int length;
+    // an open addressed table maintained by the trie, null until there is a child
+    WeakReference<PathNode>[] children;
+    // the slots in use, including children which have been collected
+    int used;
+
+    PathNode(PathNode parent, String piece) {
+        this.parent = parent;
+        this.piece  = piece;
+        this.length = (parent != null ? parent.length : 0) + piece.length();
+    }
+
+    public PathNode getParent() {
+        return parent;
+    }
+
+    /**
+     * @return the last piece of the path, which starts with a separator unless it is the first piece
+     */
+    public String getPiece() {
+        return piece;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return the path, it is built on every call
+     */
+    public String getPath() {
+        char[] path = new char[length];
+        for (PathNode n = this; n != null; n = n.parent) {
+            n.piece.getChars(0, n.piece.length(), path, n.length - n.piece.length());
+        }
+        return new String(path);
+    }
+
+    /**
+     * @param ancestor
+     * @return true if ancestor is this node or one of its ancestors
+     */
+    public boolean isBelow(PathNode ancestor) {
+        if (ancestor.length > length) {
+            return false;
+        }
+        for (PathNode n = this; n != null && n.length >= ancestor.length; n = n.parent) {
+            if (n == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The same as getPath().startsWith(prefix), without building the path
+     * @param prefix
+     * @return true if the path starts with prefix
+     */
+    public boolean startsWith(String prefix) {
+        if (prefix.length() > length) {
+            return false;
+        }
+
+        // the node whose piece holds the end of prefix
+        PathNode n = this;
+        while (n.parent != null && n.parent.length >= prefix.length()) {
+            n = n.parent;
+        }
+
+        for (; n != null; n = n.parent) {
+            int start = n.length - n.piece.length();
+            if (prefix.regionMatches(start, n.piece, 0, Math.min(n.piece.length(), prefix.length() - start)) 
+                                                                                                == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return getPath();
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * The affected paths of all changelogs, every directory is held once no matter how many paths 
+ * are below it. Paths are split before every '/' and '\', such that both unix and windows paths 
+ * share their directories and a path is given back exactly as it was added. 
+ * 
+ * Children are weakly referenced, a node stays in the trie as long as a FileElement refers to it 
+ * or to a path below it. The children of a node are kept in an open addressed table, only touched 
+ * with the trie locked, where a collected child is left as a tombstone until the table is rebuilt.
+ */
+public final class PathTrie {
+    private static final PathTrie GLOBAL = new PathTrie();
+
+    private static final int MIN_CAPACITY = 4;
+
+    private final PathNode root = new PathNode(null, "");
+
+    /**
+     * @return the trie shared by all changelogs
+     */
+    public static PathTrie global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @param path
+     * @return the node of path, added if it isn't in the trie, null if path is null
+     */
+    public synchronized PathNode nodeOf(String path) {
+        if (path == null) {
+            return null;
+        }
+
+        PathNode node = root;
+        int start = 0;
+        do {
+            int end = nextPiece(path, start);
+            String piece = path.substring(start, end);
+
+            PathNode next = child(node, piece);
+            if (next == null) {
+                next = new PathNode(node, piece);
+                add(node, next);
+            }
+
+            node  = next;
+            start = end;
+        } while (start < path.length());
+
+        return node;
+    }
+
+    /**
+     * @param path
+     * @return the node of path if it is in the trie, otherwise null
+     */
+    public synchronized PathNode find(String path) {
+        if (path == null) {
+            return null;
+        }
+
+        PathNode node = root;
+        int start = 0;
+        do {
+            int end = nextPiece(path, start);
+            node = child(node, path.substring(start, end));
+            if (node == null) {
+                return null;
+            }
+            start = end;
+        } while (start < path.length());
+
+        return node;
+    }
+
+    /**
+     * @return the number of nodes directly below the root which haven't been collected, for tests
+     */
+    synchronized int roots() {
+        int ret = 0;
+        if (root.children != null) {
+            for (WeakReference<PathNode> ref : root.children) {
+                if (ref != null && ref.get() != null) {
+                    ret++;
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return where the piece starting at start ends, the piece includes its leading separator
+     */
+    private static int nextPiece(String path, int start) {
+        for (int i = start + 1; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '/' || c == '\\') {
+                return i;
+            }
+        }
+        return path.length();
+    }
+
+    private static PathNode child(PathNode parent, String piece) {
+        WeakReference<PathNode>[] table = parent.children;
+        if (table == null) {
+            return null;
+        }
+
+        int mask = table.length - 1;
+        for (int i = piece.hashCode() & mask; table[i] != null; i = (i + 1) & mask) {
+            PathNode n = table[i].get();
+            if (n != null && n.getPiece().equals(piece)) {
+                return n;
+            }
+        }
+        return null;
+    }
+
+    private static void add(PathNode parent, PathNode child) {
+        if (parent.children == null) {
+            parent.children = newTable(MIN_CAPACITY);
+        } else if ((parent.used + 1) * 4 > parent.children.length * 3) {
+            rebuild(parent);
+        }
+
+        put(parent.children, new WeakReference<PathNode>(child));
+        parent.used++;
+    }
+
+    /**
+     * Drops the tombstones, and grows the table if it is still more than half full
+     */
+    private static void rebuild(PathNode parent) {
+        WeakReference<PathNode>[] old = parent.children;
+        int live = 0;
+        for (WeakReference<PathNode> ref : old) {
+            if (ref != null && ref.get() != null) {
+                live++;
+            }
+        }
+
+        int capacity = MIN_CAPACITY;
+        while (live * 2 >= capacity) {
+            capacity <<= 1;
+        }
+
+        WeakReference<PathNode>[] table = newTable(capacity);
+        for (WeakReference<PathNode> ref : old) {
+            if (ref != null && ref.get() != null) {
+                put(table, ref);
+            }
+        }
+        parent.children = table;
+        parent.used     = live;
+    }
+
+    private static void put(WeakReference<PathNode>[] table, WeakReference<PathNode> ref) {
+        PathNode n = ref.get();
+        int mask = table.length - 1;
+        int i = (n != null ? n.getPiece().hashCode() : 0) & mask;
+        while (table[i] != null) {
+            i = (i + 1) & mask;
+        }
+        table[i] = ref;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static WeakReference<PathNode>[] newTable(int capacity) {
+        return new WeakReference[capacity];
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * When each load rule is due to be polled. A load rule which changes often is polled every time, 
+ * one which has been quiet is skipped for a fraction of the time it usually goes without a change. 
+ * No load rule goes unpolled for more than the maximum interval, when one would all load rules are 
+ * polled at once, hence a quiet load rule is at worst noticed a maximum interval late.
+ * 
+ * A schedule is immutable, polled returns the schedule after a poll.
+ */
+public class PollSchedule {
+    // a load rule is skipped for at most this fraction of the time it usually goes without a 
+    // change, which with changes arriving at random gives a change about a 5% chance to wait
+    public static final int QUIET_DIVISOR = 20;
+
+    private static final long UNKNOWN = LoadRuleDateMap.UNKNOWN;
+
+    private final Map<String, Rule> rules;
+
+    public PollSchedule() {
+        this(new HashMap<String, Rule>());
+    }
+
+    private PollSchedule(Map<String, Rule> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * @param history the load rule dates of previous builds, in any order
+     * @return a schedule where every load rule is due, and how often each has changed is taken 
+     *         from the distinct dates in history
+     */
+    public static PollSchedule fromHistory(Collection<LoadRuleDateMap> history) {
+        Map<String, TreeSet<Long>> dates = new HashMap<String, TreeSet<Long>>();
+        for (LoadRuleDateMap map : history) {
+            for (int i = 0; i < map.size(); i++) {
+                if (map.getTime(i) == UNKNOWN) {
+                    continue;
+                }
+                TreeSet<Long> ruleDates = dates.get(map.getLoadRule(i));
+                if (ruleDates == null) {
+                    ruleDates = new TreeSet<Long>();
+                    dates.put(map.getLoadRule(i), ruleDates);
+                }
+                ruleDates.add(map.getTime(i));
+            }
+        }
+
+        Map<String, Rule> rules = new HashMap<String, Rule>();
+        for (Map.Entry<String, TreeSet<Long>> entry : dates.entrySet()) {
+            TreeSet<Long> ruleDates = entry.getValue();
+            long meanGap = (ruleDates.size() > 1) ? (ruleDates.last() - ruleDates.first()) / (ruleDates.size() - 1) 
+                                                  : UNKNOWN;
+            rules.put(entry.getKey(), new Rule(UNKNOWN, ruleDates.last(), meanGap));
+        }
+        return new PollSchedule(rules);
+    }
+
+    /**
+     * @param loadRules the load rules of the job
+     * @param now in epoch millis
+     * @param maxInterval the longest time in millis a load rule may go without being polled
+     * @return the load rules to poll now, all of them if any has reached maxInterval
+     */
+    public List<String> getDue(List<String> loadRules, long now, long maxInterval) {
+        List<String> due = new ArrayList<String>();
+
+        for (String loadRule : loadRules) {
+            Rule rule = rules.get(loadRule);
+            // a clock set back is treated as a reached maxInterval
+            if (rule == null || rule.lastPolled == UNKNOWN || now < rule.lastPolled 
+                             || now - rule.lastPolled >= maxInterval) {
+                return new ArrayList<String>(loadRules);
+            }
+            if (now - rule.lastPolled >= rule.getInterval(now)) {
+                due.add(loadRule);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * @param polled the load rules which were polled
+     * @param remote the dates the poll found, a load rule without one hasn't changed
+     * @param now in epoch millis
+     * @return the schedule with polled as polled at now
+     */
+    public PollSchedule polled(Collection<String> polled, LoadRuleDateMap remote, long now) {
+        Map<String, Rule> ret = new HashMap<String, Rule>(rules);
+
+        for (String loadRule : polled) {
+            Rule rule = rules.get(loadRule);
+            long lastChange = (rule != null) ? rule.lastChange : UNKNOWN;
+            long meanGap    = (rule != null) ? rule.meanGap : UNKNOWN;
+            long time       = remote.getTime(loadRule);
+
+            if (time != UNKNOWN && time > lastChange) {
+                if (lastChange != UNKNOWN) {
+                    // a moving average, such that a load rule which gets busy again is soon polled often
+                    long gap = time - lastChange;
+                    meanGap  = (meanGap != UNKNOWN) ? (meanGap * 3 + gap) / 4 : gap;
+                }
+                lastChange = time;
+            }
+            ret.put(loadRule, new Rule(now, lastChange, meanGap));
+        }
+        return new PollSchedule(ret);
+    }
+
+    /**
+     * @param loadRule
+     * @param now in epoch millis
+     * @return how long loadRule can be skipped after a poll, Long.MAX_VALUE if it never changed
+     */
+    public long getInterval(String loadRule, long now) {
+        Rule rule = rules.get(loadRule);
+        return (rule != null) ? rule.getInterval(now) : Long.MAX_VALUE;
+    }
+
+    @Override
+    public String toString() {
+        return rules.toString();
+    }
+
+    private static class Rule {
+        private final long lastPolled;
+        private final long lastChange;
+        private final long meanGap;
+
+        Rule(long lastPolled, long lastChange, long meanGap) {
+            this.lastPolled = lastPolled;
+            this.lastChange = lastChange;
+            this.meanGap    = meanGap;
+        }
+
+        long getInterval(long now) {
+            // the time since the last change, or the usual time between changes if it is shorter
+            long quiet = (lastChange != UNKNOWN) ? Math.max(0, now - lastChange) : Long.MAX_VALUE;
+            if (meanGap != UNKNOWN) {
+                quiet = Math.min(quiet, meanGap);
+            }
+            return (quiet != Long.MAX_VALUE) ? quiet / QUIET_DIVISOR : Long.MAX_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[polled %d, changed %d, mean gap %d]", lastPolled, lastChange, meanGap);
+        }
+    }
+}
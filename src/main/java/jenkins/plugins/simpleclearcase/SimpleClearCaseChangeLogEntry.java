@@ -24,13 +24,16 @@
 
 package jenkins.plugins.simpleclearcase;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
 import hudson.model.User;
 import hudson.scm.ChangeLogSet;
+import jenkins.plugins.simpleclearcase.util.StringPool;
 
 public class SimpleClearCaseChangeLogEntry extends ChangeLogSet.Entry {
 
@@ -52,6 +55,12 @@ public class SimpleClearCaseChangeLogEntry extends ChangeLogSet.Entry {
     // through the spawned shell from cleartool.
     public static final String LSHISTORY_FORMATTING     = "%Nd| |%u| |%En| |%Vn| |%e| |%o| |%Nc\\n";
     public static final String LSHISTORY_SPLIT_SEQUENCE = "\\| \\|";
+    // the same separator as plain text, for parsing without regular expressions
+    public static final String LSHISTORY_SEPARATOR      = "| |";
+
+    // users, versions, event descriptions and operations repeat between entries, whichever 
+    // way the entries are created they share the same instances, paths are shared by PathTrie
+    private static final StringPool POOL = StringPool.global();
 
     private Date date;
     private String user;
@@ -65,10 +74,10 @@ public class SimpleClearCaseChangeLogEntry extends ChangeLogSet.Entry {
     public SimpleClearCaseChangeLogEntry(Date date, String user, String version, 
                                               String eventDescription, String operation, String comment) {
         this.date             = date;
-        this.user             = user;
-        this.version          = version;
-        this.eventDescription = eventDescription;
-        this.operation        = operation;
+        this.user             = POOL.intern(user);
+        this.version          = POOL.intern(version);
+        this.eventDescription = POOL.intern(eventDescription);
+        this.operation        = POOL.intern(operation);
         this.comment          = comment;
         this.elements         = new ArrayList<FileElement>();
     }
@@ -96,7 +105,7 @@ public class SimpleClearCaseChangeLogEntry extends ChangeLogSet.Entry {
     }
 
     public void setUser(String user) {
-        this.user = user;
+        this.user = POOL.intern(user);
     }
 
     public String getVersion() {
@@ -104,7 +113,7 @@ public class SimpleClearCaseChangeLogEntry extends ChangeLogSet.Entry {
     }
 
     public void setVersion(String version) {
-        this.version = version;
+        this.version = POOL.intern(version);
     }
 
     public String getOperation() {
@@ -112,7 +121,7 @@ public class SimpleClearCaseChangeLogEntry extends ChangeLogSet.Entry {
     }
 
     public void setOperation(String operation) {
-        this.operation = operation;
+        this.operation = POOL.intern(operation);
     }
 
     public String getEventDescription() {
@@ -120,7 +129,7 @@ public class SimpleClearCaseChangeLogEntry extends ChangeLogSet.Entry {
     }
 
     public void setEventDescription(String eventDescription) {
-        this.eventDescription = eventDescription;
+        this.eventDescription = POOL.intern(eventDescription);
     }
 
     public String getComment() {
@@ -149,25 +158,64 @@ public class SimpleClearCaseChangeLogEntry extends ChangeLogSet.Entry {
         this.parent = set;
     }
 
+    /**
+     * @return a copy of this entry without parent, the elements are shared as they aren't changed
+     */
+    public SimpleClearCaseChangeLogEntry copy() {
+        SimpleClearCaseChangeLogEntry ret = new SimpleClearCaseChangeLogEntry(date, user, version, 
+                                                               eventDescription, operation, comment);
+        ret.elements.addAll(elements);
+        return ret;
+    }
+
+    /**
+     * @return the elements of the affected paths, unmodifiable
+     */
+    public List<FileElement> getElements() {
+        return Collections.unmodifiableList(elements);
+    }
+
     /**
      * @param prefix
      * @return true if any path starts with prefix otherwise false
      */
     public boolean containsPathWithPrefix(String prefix) {
-        for (String path : getAffectedPaths()) {
-            if (path.startsWith(prefix) == true) {
+        for (FileElement e : elements) {
+            if (e.getNode() != null && e.getNode().startsWith(prefix) == true) {
                 return true;
             }
         }
         return false;
     }
 
-    @Override
-    public Collection<String> getAffectedPaths() {
-        Collection<String> ret = new ArrayList<String>();
+    /**
+     * @param ancestor a node of the PathTrie
+     * @return true if any path is ancestor or below it otherwise false
+     */
+    public boolean containsPathBelow(PathNode ancestor) {
         for (FileElement e : elements) {
-            ret.add(e.getFilePath());
+            if (e.getNode() != null && e.getNode().isBelow(ancestor) == true) {
+                return true;
+            }
         }
-        return ret;
+        return false;
+    }
+
+    /**
+     * @return a view of the paths, built as they are read
+     */
+    @Override
+    public Collection<String> getAffectedPaths() {
+        return new AbstractList<String>() {
+            @Override
+            public String get(int index) {
+                return elements.get(index).getFilePath();
+            }
+
+            @Override
+            public int size() {
+                return elements.size();
+            }
+        };
     }
 }
@@ -30,39 +30,38 @@ import hudson.scm.ChangeLogParser;
 import hudson.scm.ChangeLogSet;
 import hudson.scm.ChangeLogSet.Entry;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-
-import jenkins.plugins.simpleclearcase.util.DateUtil;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import jenkins.plugins.simpleclearcase.util.DateCodec;
 import jenkins.plugins.simpleclearcase.util.DebugHelper;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-
 import org.xml.sax.SAXException;
 
 public class SimpleClearCaseChangeLogParser extends ChangeLogParser {
-    private static final String XML_VERSION              = "1.0";
-    private static final String XML_ENCODING             = "UTF-8";
-    private static final String XML_INDENT               = "yes";
-    private static final String XML_INDENT_SPACE         = "2";
-    private static final String XML_INDENT_SPACE_SETTING = "{http://xml.apache.org/xslt}indent-amount";
+    private static final String XML_VERSION      = "1.0";
+    private static final String XML_ENCODING     = "UTF-8";
+    private static final int XML_INDENT_SPACE    = 2;
+    private static final char INVALID_XML_CHAR   = '?';
+    private static final byte[] PAGE_ROOT        = "<page>".getBytes(Charset.forName(XML_ENCODING));
+    // a newline followed by the indentation of the deepest element
+    private static final char[] INDENTS          = "\n        ".toCharArray();
 
     private static final String CHANGELOG         = "changelog";
     private static final String VERSION           = "version";
@@ -75,143 +74,300 @@ public class SimpleClearCaseChangeLogParser extends ChangeLogParser {
     private static final String OPERATION         = "operation";
     private static final String EVENT_DESCRIPTION = "eventdescription";
 
-    private DateUtil dateUtil;
-    
-    public SimpleClearCaseChangeLogParser() {
-        dateUtil = new DateUtil();
+    // the codec is thread-safe, hence a parser can be shared
+    private final DateCodec codec = DateCodec.local();
+    // only affects writing, the format is detected when reading
+    private boolean binary;
+    private boolean compressed;
+
+    /**
+     * @param binary if true changelogs are written as a BinaryChangeLog instead of xml
+     */
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * @param compressed if true changelogs are written compressed, see ChangeLogFile
+     */
+    public void setCompressed(boolean compressed) {
+        this.compressed = compressed;
     }
+
+    /**
+     * Writes the changelog of set to file, either binary or as xml together with its ChangeLogIndex
+     */
     public boolean writeChangeLog(File file, SimpleClearCaseChangeLogSet set,
                                                                TaskListener listener) throws IOException {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        Document doc;
+        if (binary == true) {
+            // a binary changelog has an index of its own
+            ChangeLogIndex.indexFileOf(file).delete();
+            BinaryChangeLog.write(file, set, compressed);
+            return true;
+        }
+
+        OutputStream out = ChangeLogFile.create(file, compressed);
+        ChangeLogIndex.Builder index = new ChangeLogIndex.Builder();
 
         try {
-            doc = factory.newDocumentBuilder().newDocument();
-        } catch (ParserConfigurationException ex) {
-            DebugHelper.error(listener, "Couldn't create a new DocumentBuilder, ExceptionMsg: e: %s",
-                                                                                         ex.getMessage());
+            writeChangeLog(new CountingOutputStream(out), set, index);
+        } catch (XMLStreamException ex) {
+            DebugHelper.error(listener, "Couldn't write the changelog to %s, ExceptionMsg: e: %s",
+                                                                                 file, ex.getMessage());
             return false;
+        } finally {
+            out.close();
         }
 
-        doc.setXmlVersion(XML_VERSION);
-
-        Element changelog = doc.createElement(CHANGELOG);
-
-        for (SimpleClearCaseChangeLogEntry e : set.getEntries()) {
-            Element entry = doc.createElement(ENTRY);
-
-            Element date = doc.createElement(DATE);
-            date.setTextContent(dateUtil.formatDate(e.getDate()));
-
-            Element user = doc.createElement(USER);
-            user.setTextContent(e.getUser());
+        index.write(file);
+        return true;
+    }
 
-            Element comment = doc.createElement(COMMENT);
-            comment.setTextContent(e.getComment());
+    /**
+     * Writes entries to out one by one, nothing but the current entry is held in memory. 
+     * The stream isn't closed.
+     * @param out where the changelog is written, encoded with XML_ENCODING
+     * @param entries to write
+     * @throws XMLStreamException
+     */
+    public void writeChangeLog(OutputStream out, 
+                            Iterable<SimpleClearCaseChangeLogEntry> entries) throws XMLStreamException {
+        writeChangeLog(out, entries, null);
+    }
 
-            Element version = doc.createElement(VERSION);
-            version.setTextContent(e.getVersion());
+    /**
+     * @param index if not null, out must be a CountingOutputStream and the offset of every 
+     *              entry is added to index
+     */
+    private void writeChangeLog(OutputStream out, Iterable<SimpleClearCaseChangeLogEntry> entries, 
+                                               ChangeLogIndex.Builder index) throws XMLStreamException {
+        XMLStreamWriter w = XMLOutputFactory.newInstance().createXMLStreamWriter(out, XML_ENCODING);
+
+        w.writeStartDocument(XML_ENCODING, XML_VERSION);
+        newline(w, 0);
+        w.writeStartElement(CHANGELOG);
+
+        for (SimpleClearCaseChangeLogEntry e : entries) {
+            if (index != null) {
+                // the writer has to hand over what it has buffered for the count to be right
+                w.flush();
+                index.add(((CountingOutputStream) out).getCount());
+            }
 
-            Element operation = doc.createElement(OPERATION);
-            operation.setTextContent(e.getOperation());
+            newline(w, 1);
+            w.writeStartElement(ENTRY);
 
-            Element eventDescription = doc.createElement(EVENT_DESCRIPTION);
-            eventDescription.setTextContent(e.getEventDescription());
+            writeElement(w, 2, DATE, codec.formatXml(e.getDate()));
+            writeElement(w, 2, USER, e.getUser());
+            writeElement(w, 2, OPERATION, e.getOperation());
+            writeElement(w, 2, EVENT_DESCRIPTION, e.getEventDescription());
+            writeElement(w, 2, VERSION, e.getVersion());
+            writeElement(w, 2, COMMENT, e.getComment());
 
-            Element items = doc.createElement(ITEMS);
+            newline(w, 2);
+            w.writeStartElement(ITEMS);
             // TODO when changing Entry such that file elements contain versions
             // then this must be also changed
             for (String filePath : e.getAffectedPaths()) {
-                Element item = doc.createElement(ITEM);
-                item.setTextContent(filePath);
-                items.appendChild(item);
+                writeElement(w, 3, ITEM, filePath);
             }
+            newline(w, 2);
+            w.writeEndElement();
 
-            entry.appendChild(date);
-            entry.appendChild(user);
-            entry.appendChild(operation);
-            entry.appendChild(eventDescription);
-            entry.appendChild(version);
-            entry.appendChild(comment);
-            entry.appendChild(items);
-
-            changelog.appendChild(entry);
+            newline(w, 1);
+            w.writeEndElement();
         }
 
-        doc.appendChild(changelog);
+        newline(w, 0);
+        w.writeEndElement();
+        newline(w, 0);
+        w.writeEndDocument();
+        w.flush();
+        w.close();
+    }
 
-        TransformerFactory tf = TransformerFactory.newInstance();
-        Transformer t;
-        try {
-            t = tf.newTransformer();
+    private static void writeElement(XMLStreamWriter w, int depth, String name, 
+                                                               String text) throws XMLStreamException {
+        newline(w, depth);
+        w.writeStartElement(name);
+        w.writeCharacters(toXmlText(text));
+        w.writeEndElement();
+    }
 
-            t.setOutputProperty(OutputKeys.ENCODING, XML_ENCODING);
-            t.setOutputProperty(OutputKeys.INDENT, XML_INDENT);
-            t.setOutputProperty(XML_INDENT_SPACE_SETTING, XML_INDENT_SPACE);
+    private static void newline(XMLStreamWriter w, int depth) throws XMLStreamException {
+        w.writeCharacters(INDENTS, 0, 1 + depth * XML_INDENT_SPACE);
+    }
 
-            DOMSource src = new DOMSource(doc);
-            StreamResult res = new StreamResult(new FileOutputStream(file));
+    /**
+     * @return text without the characters which XML 1.0 can't hold, null becomes empty
+     */
+    private static String toXmlText(String text) {
+        if (text == null) {
+            return "";
+        }
 
-            t.transform(src, res);
-        } catch (TransformerException ex) {
-            DebugHelper.error(listener, 
-                               "Couldn't create transform and write to resultStream, ExceptionMsg: e: %s",
-                                                                                         ex.getMessage());
-            return false;
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean valid = c >= 0x20 ? (c < 0xfffe) : (c == '\t' || c == '\n' || c == '\r');
+
+            if (valid == false && sb == null) {
+                sb = new StringBuilder(text.length());
+                sb.append(text, 0, i);
+            }
+            if (sb != null) {
+                sb.append(valid ? c : INVALID_XML_CHAR);
+            }
         }
-        return true;
+        return (sb == null) ? text : sb.toString();
     }
 
     public List<SimpleClearCaseChangeLogEntry> readChangeLog(File file) throws 
                                                  IOException, ParserConfigurationException, SAXException {
-        return readChangeLog(new FileInputStream(file));
+        if (BinaryChangeLog.isBinary(file) == true) {
+            BinaryChangeLog changelog = BinaryChangeLog.open(file);
+            return changelog.read(0, changelog.size());
+        }
+
+        InputStream is = ChangeLogFile.open(file).openAt(0);
+
+        try {
+            return readChangeLog(is);
+        } finally {
+            is.close();
+        }
     }
 
     public List<SimpleClearCaseChangeLogEntry> readChangeLog(InputStream is) throws 
                                                  IOException, ParserConfigurationException, SAXException {
-        List<SimpleClearCaseChangeLogEntry> ret = new ArrayList<SimpleClearCaseChangeLogEntry>();
+        return readChangeLog(is, Integer.MAX_VALUE);
+    }
 
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document doc = builder.parse(is);
+    /**
+     * Reads entries from the middle of a changelog, as located by a ChangeLogIndex
+     * @param file the changelog
+     * @param offset where the first entry starts
+     * @param count the number of entries to read, there must be at least that many after offset
+     * @return the entries
+     * @throws IOException
+     * @throws SAXException
+     */
+    public List<SimpleClearCaseChangeLogEntry> readChangeLog(File file, long offset, int count) throws 
+                                                                               IOException, SAXException {
+        InputStream entries = ChangeLogFile.open(file).openAt(offset);
 
-        // proper change log should only contain a CHANGE LOG element
-        Element changelog = (Element) doc.getElementsByTagName(CHANGELOG).item(0);
+        try {
+            // the entries are wrapped in a root of their own, parsing stops before the end 
+            // of changelog which would close a root that isn't there
+            InputStream is = new SequenceInputStream(new ByteArrayInputStream(PAGE_ROOT), entries);
+            return read(is, count);
+        } finally {
+            entries.close();
+        }
+    }
 
-        // fetch all the entries from changelog
-        NodeList entries = changelog.getElementsByTagName(ENTRY);
+    /**
+     * Reads the changelog in a single forward pass, entries are built as their end tag is read. 
+     * @param is the changelog, isn't closed
+     * @param maxEntries the number of entries to read, the rest of the changelog isn't parsed
+     * @return at most maxEntries entries, in changelog order
+     * @throws SAXException if the changelog isn't well formed
+     */
+    public List<SimpleClearCaseChangeLogEntry> readChangeLog(InputStream is, int maxEntries) throws 
+                                                 IOException, ParserConfigurationException, SAXException {
+        return read(is, maxEntries);
+    }
 
-        // as NodeList doesn't implement iterable...
-        for (int i = 0; i < entries.getLength(); i++) {
-            Element elemEntry = (Element) entries.item(i);
+    private List<SimpleClearCaseChangeLogEntry> read(InputStream is, int maxEntries) throws SAXException {
+        List<SimpleClearCaseChangeLogEntry> ret = new ArrayList<SimpleClearCaseChangeLogEntry>();
 
-            String date = elemEntry.getElementsByTagName(DATE).item(0).getTextContent().trim();
-            String user = elemEntry.getElementsByTagName(USER).item(0).getTextContent().trim();
-            String version = elemEntry.getElementsByTagName(VERSION).item(0).getTextContent().trim();
-            String operation = elemEntry.getElementsByTagName(OPERATION).item(0).getTextContent().trim();
-            String eventDescription = elemEntry.getElementsByTagName(EVENT_DESCRIPTION).item(0).getTextContent().trim();
-            String comment = elemEntry.getElementsByTagName(COMMENT).item(0).getTextContent().trim();
+        try {
+            XMLStreamReader r = createInputFactory().createXMLStreamReader(is);
 
-            // we create the entry without any file path reference
-            SimpleClearCaseChangeLogEntry entry = new SimpleClearCaseChangeLogEntry(
-                           dateUtil.parseDate(date), user, version, eventDescription, operation, comment);
-            // adding all available file paths to entry
-            addFilePathsToEntry(elemEntry.getElementsByTagName(ITEM), entry);
-            ret.add(entry);
+            try {
+                readEntries(r, ret, maxEntries);
+            } finally {
+                r.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new SAXException(e);
         }
         return ret;
     }
 
-    private void addFilePathsToEntry(NodeList items, SimpleClearCaseChangeLogEntry entry) {
-        for (int i = 0; i < items.getLength(); i++) {
-            Element elemItem = (Element) items.item(i);
-            entry.addPath(elemItem.getTextContent().trim());
+    private void readEntries(XMLStreamReader r, List<SimpleClearCaseChangeLogEntry> ret, 
+                                                          int maxEntries) throws XMLStreamException {
+        String date             = null;
+        String user             = null;
+        String version          = null;
+        String operation        = null;
+        String eventDescription = null;
+        String comment          = null;
+        List<String> items      = new ArrayList<String>();
+
+        while (ret.size() < maxEntries && r.hasNext()) {
+            int event = r.next();
+
+            if (event == XMLStreamConstants.END_ELEMENT && r.getLocalName().equals(ENTRY)) {
+                // we create the entry without any file path reference
+                SimpleClearCaseChangeLogEntry entry = new SimpleClearCaseChangeLogEntry(
+                           codec.parseXml(date), user, version, eventDescription, operation, comment);
+                // adding all available file paths to entry
+                for (String item : items) {
+                    entry.addPath(item);
+                }
+                ret.add(entry);
+                continue;
+            }
+
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+
+            String name = r.getLocalName();
+
+            if (name.equals(ENTRY)) {
+                date = user = version = operation = eventDescription = comment = null;
+                items.clear();
+            } else if (name.equals(DATE)) {
+                date = r.getElementText().trim();
+            } else if (name.equals(USER)) {
+                user = r.getElementText().trim();
+            } else if (name.equals(VERSION)) {
+                version = r.getElementText().trim();
+            } else if (name.equals(OPERATION)) {
+                operation = r.getElementText().trim();
+            } else if (name.equals(EVENT_DESCRIPTION)) {
+                eventDescription = r.getElementText().trim();
+            } else if (name.equals(COMMENT)) {
+                comment = r.getElementText().trim();
+            } else if (name.equals(ITEM)) {
+                items.add(r.getElementText().trim());
+            }
         }
     }
 
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // a changelog has neither a DTD nor entities of its own
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
     @Override
     public ChangeLogSet<? extends Entry> parse(@SuppressWarnings("rawtypes") AbstractBuild build,
                                                     File changelogFile) throws IOException, SAXException {
+        if (BinaryChangeLog.isBinary(changelogFile) == true) {
+            return new SimpleClearCaseChangeLogSet(build, BinaryChangeLog.open(changelogFile));
+        }
+
+        // with an index, entries are read a page at a time when they are needed
+        ChangeLogIndex index = ChangeLogIndex.open(changelogFile);
+        if (index != null) {
+            return new SimpleClearCaseChangeLogSet(build, new IndexedXmlStore(changelogFile, index));
+        }
+
         List<SimpleClearCaseChangeLogEntry> entries;
         try {
             entries = readChangeLog(changelogFile);
@@ -220,4 +376,61 @@ public class SimpleClearCaseChangeLogParser extends ChangeLogParser {
         }
         return new SimpleClearCaseChangeLogSet(build, entries);
     }
+
+    /**
+     * Reads ranges of entries from an xml changelog through its ChangeLogIndex
+     */
+    private class IndexedXmlStore implements ChangeLogStore {
+        private final File file;
+        private final ChangeLogIndex index;
+
+        public IndexedXmlStore(File file, ChangeLogIndex index) {
+            this.file  = file;
+            this.index = index;
+        }
+
+        public int size() {
+            return index.size();
+        }
+
+        public List<SimpleClearCaseChangeLogEntry> read(int first, int count) throws IOException {
+            try {
+                return readChangeLog(file, index.offsetOf(first), count);
+            } catch (SAXException e) {
+                throw new IOException("Couldn't parse changelog " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes written, flush isn't passed on as the writer flushes before every entry
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        public CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+            // the underlying stream is flushed when it is closed
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
 }
@@ -26,13 +26,28 @@ package jenkins.plugins.simpleclearcase;
 
 import hudson.model.AbstractBuild;
 
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
-
+/**
+ * The entries of a build. Either all entries are held in memory, or they are read from a 
+ * ChangeLogStore a page at a time, such that showing the first page of a huge changelog only 
+ * parses the entries of that page.
+ */
 public class SimpleClearCaseChangeLogSet extends hudson.scm.ChangeLogSet<SimpleClearCaseChangeLogEntry> {
+    public static final int PAGE_SIZE = 100;
+
     private List<SimpleClearCaseChangeLogEntry> entries;
 
+    // set when entries are read on demand
+    private ChangeLogStore store;
+    // the last page read, the same page is asked for several times when a page is rendered
+    private volatile SoftReference<Page> lastPage = new SoftReference<Page>(null);
+
     protected SimpleClearCaseChangeLogSet(AbstractBuild<?, ?> build, 
                                                             List<SimpleClearCaseChangeLogEntry> entries) {
         super(build);
@@ -43,16 +58,139 @@ public class SimpleClearCaseChangeLogSet extends hudson.scm.ChangeLogSet<SimpleC
         }
     }
 
+    protected SimpleClearCaseChangeLogSet(AbstractBuild<?, ?> build, ChangeLogStore store) {
+        super(build);
+        this.store = store;
+    }
+
     public Iterator<SimpleClearCaseChangeLogEntry> iterator() {
-        return entries.iterator();
+        if (entries != null) {
+            return entries.iterator();
+        }
+        return new PagedIterator();
     }
 
+    /**
+     * @return all entries, when entries are read on demand this reads the whole changelog
+     */
     public List<SimpleClearCaseChangeLogEntry> getEntries() {
-        return entries;
+        if (entries != null) {
+            return entries;
+        }
+        return getEntries(0, size());
+    }
+
+    /**
+     * @param first the index of the first entry
+     * @param count the maximum number of entries
+     * @return the entries from first, fewer than count at the end of the set
+     * @throws IllegalStateException if the changelog couldn't be read
+     */
+    public List<SimpleClearCaseChangeLogEntry> getEntries(int first, int count) {
+        int end = (int) Math.min((long) first + count, size());
+
+        if (first < 0 || first >= end) {
+            return Collections.emptyList();
+        }
+
+        if (entries != null) {
+            return entries.subList(first, end);
+        }
+
+        try {
+            List<SimpleClearCaseChangeLogEntry> ret = store.read(first, end - first);
+            for (SimpleClearCaseChangeLogEntry entry : ret) {
+                entry.setParent(this);
+            }
+            return ret;
+        } catch (IOException e) {
+            throw new IllegalStateException("Couldn't read changelog of " + build, e);
+        }
+    }
+
+    /**
+     * @param page from 0
+     * @return the entries of page, empty if there isn't such a page
+     */
+    public List<SimpleClearCaseChangeLogEntry> getPage(int page) {
+        Page cached = lastPage.get();
+        if (cached != null && cached.number == page) {
+            return cached.entries;
+        }
+
+        List<SimpleClearCaseChangeLogEntry> ret = getEntries(page * PAGE_SIZE, PAGE_SIZE);
+        lastPage = new SoftReference<Page>(new Page(page, ret));
+        return ret;
+    }
+
+    /**
+     * @param page the page as given in a request, can be null
+     * @return page as a number within the pages of this set
+     */
+    public int toPage(String page) {
+        int ret = 0;
+        try {
+            ret = (page != null) ? Integer.parseInt(page.trim()) : 0;
+        } catch (NumberFormatException e) {
+            // the first page then
+        }
+        return Math.max(0, Math.min(ret, getPageCount() - 1));
+    }
+
+    public int getPageCount() {
+        return (size() + PAGE_SIZE - 1) / PAGE_SIZE;
+    }
+
+    public int getPageSize() {
+        return PAGE_SIZE;
+    }
+
+    /**
+     * @return the number of entries, without reading any entry
+     */
+    public int size() {
+        return (entries != null) ? entries.size() : store.size();
     }
 
     @Override
     public boolean isEmptySet() {
-        return entries.isEmpty();
+        return size() == 0;
+    }
+
+    private static class Page {
+        private final int number;
+        private final List<SimpleClearCaseChangeLogEntry> entries;
+
+        Page(int number, List<SimpleClearCaseChangeLogEntry> entries) {
+            this.number  = number;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * Reads one page at a time, pages already iterated over can be collected
+     */
+    private class PagedIterator implements Iterator<SimpleClearCaseChangeLogEntry> {
+        private int page;
+        private Iterator<SimpleClearCaseChangeLogEntry> current = 
+                                               Collections.<SimpleClearCaseChangeLogEntry>emptyList().iterator();
+
+        public boolean hasNext() {
+            while (current.hasNext() == false && page < getPageCount()) {
+                current = getPage(page++).iterator();
+            }
+            return current.hasNext();
+        }
+
+        public SimpleClearCaseChangeLogEntry next() {
+            if (hasNext() == false) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
     }
 }
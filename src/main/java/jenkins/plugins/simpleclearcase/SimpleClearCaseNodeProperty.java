@@ -0,0 +1,74 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import org.kohsuke.stapler.DataBoundConstructor;
+
+import hudson.Extension;
+import hudson.model.Node;
+import hudson.slaves.NodeProperty;
+import hudson.slaves.NodePropertyDescriptor;
+
+/**
+ * Node specific settings. A node can cap the number of concurrent cleartool processes that 
+ * a single job spawns on it, whatever the job itself is configured with. 
+ */
+public class SimpleClearCaseNodeProperty extends NodeProperty<Node> {
+    private int maxLshistoryThreads;
+
+    @DataBoundConstructor
+    public SimpleClearCaseNodeProperty(int maxLshistoryThreads) {
+        this.maxLshistoryThreads = maxLshistoryThreads;
+    }
+
+    public int getMaxLshistoryThreads() {
+        return maxLshistoryThreads;
+    }
+
+    /**
+     * @param node the node cleartool is executed on, can be null
+     * @param threads the number of threads the job is configured with
+     * @return threads, capped by the node property of node if there is one
+     */
+    public static int capThreads(Node node, int threads) {
+        if (node == null) {
+            return threads;
+        }
+        SimpleClearCaseNodeProperty prop = node.getNodeProperties().get(SimpleClearCaseNodeProperty.class);
+
+        if (prop == null || prop.getMaxLshistoryThreads() < 1) {
+            return threads;
+        }
+        return Math.min(threads, prop.getMaxLshistoryThreads());
+    }
+
+    @Extension
+    public static class DescriptorImpl extends NodePropertyDescriptor {
+        @Override
+        public String getDisplayName() {
+            return Messages.simpleclearcase_nodeproperty_DisplayName();
+        }
+    }
+}
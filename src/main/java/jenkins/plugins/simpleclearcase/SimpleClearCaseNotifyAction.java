@@ -0,0 +1,272 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Cause;
+import hudson.model.Hudson;
+import hudson.model.Item;
+import hudson.model.RootAction;
+import hudson.triggers.SCMTrigger;
+
+/**
+ * Receives checkins from ClearCase, such that jobs don't have to poll often to notice them. A 
+ * postop checkin trigger posts to JENKINS_URL/simpleclearcase/notifyCheckin with the parameters
+ * <ul>
+ * <li>path, the checked in element or a directory above it, such as the VOB</li>
+ * <li>branch, optional, the branch type of the checkin</li>
+ * <li>date, optional, the time of the checkin in seconds since the epoch</li>
+ * </ul>
+ * for example with
+ * <pre>
+ * cleartool mktrtype -element -all -postop checkin -execunix \
+ *   'curl -s -X POST -u user:apitoken "$JENKINS_URL/simpleclearcase/notifyCheckin?path=$CLEARCASE_PN&amp;branch=$CLEARCASE_BRTYPE&amp;date=`date +%s`"' \
+ *   notify_jenkins
+ * </pre>
+ * Each job whose load rules and branch match is polled right away if it polls, with the matched 
+ * load rules due, otherwise a build is scheduled. The polling schedule of the jobs can then be 
+ * slow, as a safety net for lost notifications. Only POST is accepted, and only the jobs which the 
+ * caller may build are notified. With CSRF protection on the trigger also has to send a crumb.
+ */
+@Extension
+public class SimpleClearCaseNotifyAction implements RootAction {
+    public static final String URL_NAME = "simpleclearcase";
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+
+    public String getIconFileName() {
+        return null;
+    }
+
+    public String getDisplayName() {
+        return null;
+    }
+
+    public String getUrlName() {
+        return URL_NAME;
+    }
+
+    public void doNotifyCheckin(@QueryParameter String path, @QueryParameter String branch, 
+                                @QueryParameter String date, StaplerRequest req, 
+                                StaplerResponse rsp) throws IOException {
+        // polls and builds are started, hence a plain link mustn't be able to do it
+        if ("POST".equals(req.getMethod()) == false) {
+            rsp.setHeader("Allow", "POST");
+            rsp.sendError(HttpServletResponse.SC_METHOD_NOT_ALLOWED, "notifyCheckin requires POST");
+            return;
+        }
+
+        if (path == null || path.trim().isEmpty()) {
+            rsp.sendError(HttpServletResponse.SC_BAD_REQUEST, "path is required");
+            return;
+        }
+
+        long time = LoadRuleDateMap.UNKNOWN;
+        if (date != null && date.trim().isEmpty() == false) {
+            try {
+                time = Long.parseLong(date.trim()) * MILLIS_PER_SECOND;
+            } catch (NumberFormatException e) {
+                rsp.sendError(HttpServletResponse.SC_BAD_REQUEST, "date isn't seconds since the epoch: " + date);
+                return;
+            }
+        }
+
+        @SuppressWarnings("rawtypes")
+        List<AbstractProject> projects = Hudson.getInstance().getAllItems(AbstractProject.class);
+        List<String> notified = notifyCheckin(projects, path, branch, time);
+
+        rsp.setContentType("text/plain");
+        PrintWriter w = rsp.getWriter();
+        w.println("Notified " + notified.size() + " jobs of " + path);
+        for (String job : notified) {
+            w.println(job);
+        }
+    }
+
+    /**
+     * @param projects the projects to match the checkin against
+     * @param path the checked in element
+     * @param branch the branch of the checkin, null if unknown
+     * @param date of the checkin in epoch millis, LoadRuleDateMap.UNKNOWN if unknown
+     * @return the full names of the jobs which were polled or scheduled
+     */
+    @SuppressWarnings("rawtypes")
+    static List<String> notifyCheckin(List<AbstractProject> projects, String path, String branch, long date) {
+        List<Target> targets = new ArrayList<Target>();
+
+        for (AbstractProject<?, ?> project : projects) {
+            targets.add(new ProjectTarget(project));
+        }
+        return notifyCheckin(targets, CheckinNotifications.global(), path, branch, date);
+    }
+
+    /**
+     * @param targets the jobs to match the checkin against
+     * @param notifications where the matched load rules of polled jobs are made pending
+     * @return the full names of the jobs which were polled or scheduled
+     */
+    static List<String> notifyCheckin(List<? extends Target> targets, CheckinNotifications notifications, 
+                                                               String path, String branch, long date) {
+        List<String> ret = new ArrayList<String>();
+
+        for (Target target : targets) {
+            // the caller only needs read access to reach us, but it is polling and building the job
+            if (target.getLoadRules() == null || target.isDisabled() == true || target.canBuild() == false) {
+                continue;
+            }
+
+            List<String> loadRules = CheckinNotifications.match(target.getLoadRules(), target.getBranch(), 
+                                                                 target.getBuilt(), path, branch, date);
+            if (loadRules.isEmpty() == true) {
+                continue;
+            }
+
+            if (target.isPolling() == true) {
+                notifications.addPending(target.getFullName(), loadRules);
+                target.poll();
+            } else {
+                target.schedule(new CheckinCause(path));
+            }
+            ret.add(target.getFullName());
+        }
+        return ret;
+    }
+
+    /**
+     * What a checkin needs of a job
+     */
+    interface Target {
+        String getFullName();
+
+        /**
+         * @return the load rules of the job, null if it doesn't use SimpleClearCaseSCM
+         */
+        List<String> getLoadRules();
+
+        String getBranch();
+
+        boolean isDisabled();
+
+        /**
+         * @return true if the caller may build the job
+         */
+        boolean canBuild();
+
+        /**
+         * @return when each load rule was built, null if unknown
+         */
+        LoadRuleDateMap getBuilt();
+
+        /**
+         * @return true if the job is polled by an SCMTrigger
+         */
+        boolean isPolling();
+
+        void poll();
+
+        void schedule(Cause cause);
+    }
+
+    private static class ProjectTarget implements Target {
+        private final AbstractProject<?, ?> project;
+
+        ProjectTarget(AbstractProject<?, ?> project) {
+            this.project = project;
+        }
+
+        public String getFullName() {
+            return project.getFullName();
+        }
+
+        public List<String> getLoadRules() {
+            return (project.getScm() instanceof SimpleClearCaseSCM) 
+                 ? ((SimpleClearCaseSCM) project.getScm()).getLoadRulesAsList() : null;
+        }
+
+        public String getBranch() {
+            return ((SimpleClearCaseSCM) project.getScm()).getBranch();
+        }
+
+        public boolean isDisabled() {
+            return project.isDisabled();
+        }
+
+        public boolean canBuild() {
+            return project.hasPermission(Item.BUILD);
+        }
+
+        public LoadRuleDateMap getBuilt() {
+            AbstractBuild<?, ?> lastBuild = project.getLastBuild();
+            SimpleClearCaseRevisionState state = (lastBuild != null) 
+                                               ? lastBuild.getAction(SimpleClearCaseRevisionState.class) : null;
+            return (state != null) ? state.getLoadRuleDateMap() : null;
+        }
+
+        public boolean isPolling() {
+            return project.getTrigger(SCMTrigger.class) != null;
+        }
+
+        public void poll() {
+            project.getTrigger(SCMTrigger.class).run();
+        }
+
+        public void schedule(Cause cause) {
+            project.scheduleBuild(cause);
+        }
+    }
+
+    /**
+     * A build scheduled by a checkin, for jobs which don't poll
+     */
+    public static class CheckinCause extends Cause {
+        private final String path;
+
+        public CheckinCause(String path) {
+            this.path = path;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public String getShortDescription() {
+            return Messages.simpleclearcase_notify_cause(path);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import hudson.Plugin;
+
+/**
+ * Registers the cleartool metrics over JMX while the plugin runs, and closes the pooled cleartool 
+ * sessions when it stops
+ */
+public class SimpleClearCasePlugin extends Plugin {
+    @Override
+    public void start() throws Exception {
+        ClearToolMetrics.global().register();
+    }
+
+    @Override
+    public void stop() throws Exception {
+        // else JMX keeps the metrics of this classloader after the plugin is reloaded
+        ClearToolMetrics.global().unregister();
+        // else the cleartool processes of the pool run on after the plugin is reloaded or disabled
+        ClearToolSessionPool.getInstance().closeAll();
+    }
+}
@@ -38,12 +38,19 @@ import hudson.scm.SCMRevisionState;
 public class SimpleClearCaseRevisionState extends SCMRevisionState implements Action {
     private LoadRuleDateMap map;
     private int buildNumber;
+    // only kept between polls, a state read from a build starts over with a full poll
+    private transient PollSchedule schedule;
 
     public SimpleClearCaseRevisionState(LoadRuleDateMap map, int buildNumber) {
         this.map = map;
         this.buildNumber = buildNumber;
     }
 
+    public SimpleClearCaseRevisionState(LoadRuleDateMap map, int buildNumber, PollSchedule schedule) {
+        this(map, buildNumber);
+        this.schedule = schedule;
+    }
+
     public SimpleClearCaseRevisionState(int buildNumber) {
         this.map = new LoadRuleDateMap();
         this.buildNumber = buildNumber;
@@ -54,7 +61,7 @@ public class SimpleClearCaseRevisionState extends SCMRevisionState implements Ac
     }
 
     public void setBuiltTime(String loadRule, Date date) {
-        map.setBuildTime(loadRule, date);
+        map = map.with(loadRule, date);
     }
 
     public LoadRuleDateMap getLoadRuleDateMap() {
@@ -68,4 +75,11 @@ public class SimpleClearCaseRevisionState extends SCMRevisionState implements Ac
     public int getBuildNumber() {
         return buildNumber;
     }
+
+    /**
+     * @return the schedule of adaptive polling, null if the state hasn't been polled
+     */
+    public PollSchedule getPollSchedule() {
+        return schedule;
+    }
 }
@@ -36,6 +36,8 @@ import jenkins.plugins.simpleclearcase.SimpleClearCaseChangeLogSet;
 import jenkins.plugins.simpleclearcase.util.DebugHelper;
 import jenkins.plugins.simpleclearcase.util.ListUtil;
 import jenkins.plugins.simpleclearcase.util.OsUtil;
+import jenkins.plugins.simpleclearcase.util.PropSnapshot;
+import jenkins.plugins.simpleclearcase.util.PropUtils;
 
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.QueryParameter;
@@ -45,7 +47,10 @@ import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
 import hudson.model.BuildListener;
+import hudson.model.Computer;
+import hudson.model.Label;
 import hudson.model.ModelObject;
+import hudson.model.Node;
 import hudson.model.TaskListener;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
@@ -65,21 +70,38 @@ public class SimpleClearCaseSCM extends SCM {
 
     public final static int CHANGELOGSET_ORDER = SimpleClearCaseChangeLogEntryDateComparator.DECREASING;
 
+    // the number of builds adaptive polling learns how often load rules change from
+    public final static int POLL_HISTORY_BUILDS = 20;
+
     private String loadRules;
     private String viewname;
     private String branch;
     private boolean filter;
+    private int lshistoryThreads;
+    private boolean batchLshistory;
+    private boolean useSessions;
+    private String propertyOverrides;
+    private boolean pollWithoutWorkspace;
+    private String pollingLabel;
     
         
     @Extension
     public static final DescriptorImpl DESCRIPTOR = new DescriptorImpl();
 
     @DataBoundConstructor
-    public SimpleClearCaseSCM(String loadRules, String viewname, String branch, boolean filter) {
+    public SimpleClearCaseSCM(String loadRules, String viewname, String branch, boolean filter,
+                              int lshistoryThreads, boolean batchLshistory, boolean useSessions,
+                              String propertyOverrides, boolean pollWithoutWorkspace, String pollingLabel) {
         this.loadRules = loadRules;
         this.viewname = viewname;
         this.branch = branch;
         this.filter = filter;
+        this.lshistoryThreads = lshistoryThreads;
+        this.batchLshistory = batchLshistory;
+        this.useSessions = useSessions;
+        this.propertyOverrides = propertyOverrides;
+        this.pollWithoutWorkspace = pollWithoutWorkspace;
+        this.pollingLabel = pollingLabel;
     }
 
     @Override
@@ -95,7 +117,24 @@ public class SimpleClearCaseSCM extends SCM {
     protected PollingResult compareRemoteRevisionWith(AbstractProject<?, ?> project, Launcher launcher,
                                   FilePath workspace, TaskListener listener, SCMRevisionState scmRevisionState)
                                                                 throws IOException, InterruptedException {
+        PropSnapshot props = getProps();
+        Node pollingNode   = project.getLastBuiltOn();
+
+        // without a workspace Jenkins doesn't give us a launcher, a dynamic view only needs
+        // cleartool, which we run on the controller or a node of the polling label
+        if (pollWithoutWorkspace == true) {
+            pollingNode = getPollingNode();
+            launcher    = pollingNode.createLauncher(listener);
+            workspace   = null;
+            DebugHelper.info(listener, "%s: Polling without workspace on: %s", LOG_COMPARE_REMOTE_REVISION_WITH, 
+                             (pollingNode.getNodeName().isEmpty()) ? "controller" : pollingNode.getNodeName());
+        }
+
         ClearTool ct = new ClearTool(launcher, listener, workspace, viewname, branch, filter);
+        ct.setThreads(getLshistoryThreads(pollingNode));
+        ct.setBatch(batchLshistory);
+        ct.setSessions(useSessions);
+        ct.setProps(props);
         final AbstractBuild<?, ?> lastBuild = project.getLastBuild();
         
         SimpleClearCaseRevisionState baseline = (SimpleClearCaseRevisionState) scmRevisionState;
@@ -109,9 +148,51 @@ public class SimpleClearCaseSCM extends SCM {
         DebugHelper.info(listener, "%s: Baseline LR-mapping from RevisionState is: %s",
                                                        LOG_COMPARE_REMOTE_REVISION_WITH, baselineLRMap);
 
+        List<String> loadRules = getLoadRulesAsList();
+        List<String> due       = loadRules;
+        PollSchedule schedule  = null;
+        long now               = System.currentTimeMillis();
+        long maxInterval       = props.getAdaptivePollingMaxMinutes() * 60000L;
+        // taken also without adaptive polling, where every load rule is polled anyway
+        Set<String> notified   = CheckinNotifications.global().takePending(project.getFullName());
+
+        if (maxInterval > 0) {
+            schedule = baseline.getPollSchedule();
+            if (schedule == null) {
+                schedule = PollSchedule.fromHistory(getLoadRuleDateMaps(project, baselineLRMap));
+            }
+            due = schedule.getDue(loadRules, now, maxInterval);
+
+            // load rules with a checkin notified are polled even if they aren't due
+            for (String loadRule : notified) {
+                if (loadRules.contains(loadRule) == true && due.contains(loadRule) == false) {
+                    due.add(loadRule);
+                }
+            }
+            DebugHelper.info(listener, "%s: Adaptive polling, polling %d of %d load rules: %s", 
+                             LOG_COMPARE_REMOTE_REVISION_WITH, due.size(), loadRules.size(), due);
+        }
+
         // we send baselines LoadRuleDateMap to cleartool to limit the size of
         // the data fetched from lshistory. To speed up the polling.
-        remoteLRMap = ct.getLatestCommitDates(getLoadRulesAsList(), baselineLRMap);
+        boolean polled = false;
+        try {
+            remoteLRMap = due.isEmpty() ? new LoadRuleDateMap() : ct.getLatestCommitDates(due, baselineLRMap);
+            polled = true;
+        } finally {
+            // the notified checkins are polled on the next poll instead, rather than lost
+            if (polled == false && notified.isEmpty() == false) {
+                CheckinNotifications.global().restorePending(project.getFullName(), notified);
+            }
+        }
+
+        if (schedule != null) {
+            schedule = schedule.polled(due, remoteLRMap, now);
+            // the skipped load rules keep their baseline dates
+            if (due.size() < loadRules.size()) {
+                remoteLRMap = baselineLRMap.merge(remoteLRMap);
+            }
+        }
         
         DebugHelper.info(listener, "%s: remoteLRMap is: %s", LOG_COMPARE_REMOTE_REVISION_WITH, remoteLRMap);
         
@@ -131,11 +212,13 @@ public class SimpleClearCaseSCM extends SCM {
             DebugHelper.info(listener, "%s: There are new commits, baseline dates for load rule " +
             		           "is before remote, returning BUILD_NOW with a new remoteLRMap", LOG_COMPARE_REMOTE_REVISION_WITH);
             
-            remote = new SimpleClearCaseRevisionState(remoteLRMap, baseline.getBuildNumber());    
+            remote = new SimpleClearCaseRevisionState(remoteLRMap, baseline.getBuildNumber(), schedule);    
         } else {
             DebugHelper.info(listener, "%s: Baseline build dates are equal or newer than repo, " +
             		                           " returning NO_CHANGES with baseline = remote", LOG_COMPARE_REMOTE_REVISION_WITH);
-            remote = baseline;
+            // with adaptive polling remote carries the schedule on to the next poll
+            remote = (schedule == null) ? baseline 
+                                        : new SimpleClearCaseRevisionState(baselineLRMap, baseline.getBuildNumber(), schedule);
         }
         
         DebugHelper.info(listener, "%s: Returning PollingResult with these parameters: baseline: %s, remote: %s, Change: %s", 
@@ -149,8 +232,13 @@ public class SimpleClearCaseSCM extends SCM {
                     BuildListener listener, File changelogFile) throws IOException, InterruptedException {
 
         DebugHelper.info(listener, "%s: Starting to 'checkout'", LOG_CHECKOUT);
+        PropSnapshot props = getProps();
         ClearTool ct = new ClearTool(launcher, listener, workspace, viewname,
                                      branch, filter);
+        ct.setThreads(getLshistoryThreads(build.getBuiltOn()));
+        ct.setBatch(batchLshistory);
+        ct.setSessions(useSessions);
+        ct.setProps(props);
 
         List<SimpleClearCaseChangeLogEntry> entries;
         LoadRuleDateMap buildLRMap;
@@ -210,12 +298,15 @@ public class SimpleClearCaseSCM extends SCM {
                                                     buildRevisionState.getBuildNumber(), buildRevisionState.getLoadRuleDateMap());
         DebugHelper.info(listener, "%s: Added RevisionState in checkout for build", LOG_CHECKOUT);
         
-        return ((SimpleClearCaseChangeLogParser) createChangeLogParser()).writeChangeLog(changelogFile, set, listener);
+        SimpleClearCaseChangeLogParser parser = (SimpleClearCaseChangeLogParser) createChangeLogParser();
+        parser.setBinary(props.isBinaryChangeLog());
+        parser.setCompressed(props.isCompressedChangeLog());
+        return parser.writeChangeLog(changelogFile, set, listener);
     }
 
     @Override
     public boolean requiresWorkspaceForPolling() {
-        return true;
+        return pollWithoutWorkspace == false;
     }
 
     @Override
@@ -241,6 +332,94 @@ public class SimpleClearCaseSCM extends SCM {
     public String getBranch() {
         return branch;
     }
+
+    public int getLshistoryThreads() {
+        return lshistoryThreads;
+    }
+
+    public boolean getBatchLshistory() {
+        return batchLshistory;
+    }
+
+    public boolean getUseSessions() {
+        return useSessions;
+    }
+
+    public String getPropertyOverrides() {
+        return propertyOverrides;
+    }
+
+    public boolean getPollWithoutWorkspace() {
+        return pollWithoutWorkspace;
+    }
+
+    public String getPollingLabel() {
+        return pollingLabel;
+    }
+
+    /**
+     * @return the plugin properties with the overrides of this job
+     * @throws AbortException if the overrides aren't valid
+     */
+    private PropSnapshot getProps() throws AbortException {
+        try {
+            return PropUtils.getSnapshot().withOverrides(propertyOverrides);
+        } catch (IllegalArgumentException e) {
+            throw new AbortException(Messages.simpleclearcase_propertyOverrides_invalid() + " " + e.getMessage());
+        }
+    }
+
+    /**
+     * @param project
+     * @param baselineLRMap
+     * @return baselineLRMap and the LoadRuleDateMaps of the latest builds of project, at most 
+     *         POLL_HISTORY_BUILDS builds
+     */
+    private static List<LoadRuleDateMap> getLoadRuleDateMaps(AbstractProject<?, ?> project, 
+                                                             LoadRuleDateMap baselineLRMap) {
+        List<LoadRuleDateMap> ret = new ArrayList<LoadRuleDateMap>();
+        ret.add(baselineLRMap);
+
+        AbstractBuild<?, ?> build = project.getLastBuild();
+        for (int i = 0; build != null && i < POLL_HISTORY_BUILDS; i++, build = build.getPreviousBuild()) {
+            SimpleClearCaseRevisionState state = build.getAction(SimpleClearCaseRevisionState.class);
+            if (state != null) {
+                ret.add(state.getLoadRuleDateMap());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * @return the controller if there isn't any polling label, otherwise the first online node 
+     *         of the label, nodes which are offline aren't woken up
+     * @throws AbortException if no node of the label is online
+     */
+    private Node getPollingNode() throws AbortException {
+        if (pollingLabel == null || pollingLabel.trim().isEmpty()) {
+            return Hudson.getInstance();
+        }
+
+        Label label = Hudson.getInstance().getLabel(pollingLabel.trim());
+        if (label != null) {
+            for (Node node : label.getNodes()) {
+                Computer computer = node.toComputer();
+                if (computer != null && computer.isOnline() == true) {
+                    return node;
+                }
+            }
+        }
+        throw new AbortException(Messages.simpleclearcase_pollingLabel_offline() + " " + pollingLabel);
+    }
+
+    /**
+     * @param node the node where cleartool will be executed
+     * @return the number of load rules to process concurrently on node, never less than one
+     */
+    private int getLshistoryThreads(Node node) {
+        // jobs configured before the setting existed have 0 which means sequential
+        return Math.max(1, SimpleClearCaseNodeProperty.capThreads(node, lshistoryThreads));
+    }
     
     public List<String> getLoadRulesAsList() {
         return splitLoadRules(loadRules);
@@ -279,6 +458,51 @@ public class SimpleClearCaseSCM extends SCM {
             return Messages.simpleclearcase_DisplayName();
         }
 
+        public FormValidation doCheckLshistoryThreads(@QueryParameter String value) {
+            if (isNullOrEmpty(value)) {
+                return FormValidation.ok();
+            }
+
+            try {
+                if (Integer.parseInt(value.trim()) < 1) {
+                    return FormValidation.error(Messages.simpleclearcase_lshistoryThreads_invalid());
+                }
+            } catch (NumberFormatException e) {
+                return FormValidation.error(Messages.simpleclearcase_lshistoryThreads_invalid());
+            }
+            return FormValidation.ok();
+        }
+
+        public FormValidation doCheckPropertyOverrides(@QueryParameter String value) {
+            try {
+                PropUtils.getSnapshot().withOverrides(value);
+            } catch (IllegalArgumentException e) {
+                return FormValidation.error(Messages.simpleclearcase_propertyOverrides_invalid() + " " 
+                                                                                        + e.getMessage());
+            }
+            return FormValidation.ok();
+        }
+
+        /**
+         * Reloads the plugin properties, such that global changes take effect without a restart
+         */
+        public FormValidation doReloadProperties() {
+            Hudson.getInstance().checkPermission(Hudson.ADMINISTER);
+            return FormValidation.ok(Messages.simpleclearcase_propertyOverrides_reloaded(PropUtils.reload()));
+        }
+
+        public FormValidation doCheckPollingLabel(@QueryParameter String value) {
+            if (isNullOrEmpty(value)) {
+                return FormValidation.ok();
+            }
+
+            Label label = Hudson.getInstance().getLabel(value.trim());
+            if (label == null || label.getNodes().isEmpty() == true) {
+                return FormValidation.warning(Messages.simpleclearcase_pollingLabel_nonodes());
+            }
+            return FormValidation.ok();
+        }
+
         public FormValidation doCheckViewname(@QueryParameter String value)
                                                                 throws InterruptedException, IOException {
             if (isNullOrEmpty(value)) {
@@ -338,10 +562,17 @@ public class SimpleClearCaseSCM extends SCM {
             Launcher launcher = Hudson.getInstance().createLauncher(TaskListener.NULL);
             ClearTool ct = new ClearTool(launcher, null, null, viewname, null, false);
 
-            for (String lr : splittedRules) {
-                if (ct.doesClearCasePathExist(lr) == false) {
-                    return FormValidation.error(Messages.simpleclearcase_loadRules_pathdoesnotexist() + lr);
-                }
+            // all paths are described through one setview if possible
+            String missing;
+            try {
+                missing = ct.findMissingClearCasePath(splittedRules);
+            } catch (IOException e) {
+                return FormValidation.error(Messages.simpleclearcase_viewname_setviewfailed() + " " 
+                                                                                        + e.getMessage());
+            }
+
+            if (missing != null) {
+                return FormValidation.error(Messages.simpleclearcase_loadRules_pathdoesnotexist() + missing);
             }
             return FormValidation.ok();
         }
@@ -369,10 +600,16 @@ public class SimpleClearCaseSCM extends SCM {
             ClearTool ct = new ClearTool(launcher, null, null, viewname, value, false);
             
             // check to see if ClearTool returns any error on
-            for (String lr : splitLoadRules(loadRules)) {
-                if (ct.doesClearCaseBranchExist(lr) == false) {
-                    return FormValidation.error(Messages.simpleclearcase_branch_missingbranchforpath() + lr);
-                }
+            String missing;
+            try {
+                missing = ct.findPathWithoutBranch(splitLoadRules(loadRules));
+            } catch (IOException e) {
+                return FormValidation.error(Messages.simpleclearcase_viewname_setviewfailed() + " " 
+                                                                                        + e.getMessage());
+            }
+
+            if (missing != null) {
+                return FormValidation.error(Messages.simpleclearcase_branch_missingbranchforpath() + missing);
             }
 
             return FormValidation.ok();   
@@ -0,0 +1,291 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase.util;
+
+import java.text.DateFormatSymbols;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Formats and parses the dates used by the plugin with plain epoch-millis arithmetic. A codec is 
+ * immutable and can be shared between threads, unlike SimpleDateFormat and Calendar, hence there 
+ * is no need for a private instance per user.
+ * 
+ * The formats are
+ * <ul>
+ * <li>xml, yyyy-MM-dd'T'HH:mm:ssZ, in the changelog and in log output</li>
+ * <li>numeric, yyyyMMdd.HHmmss, the %Nd of lshistory</li>
+ * <li>since, d-MMM-yy.HH:mm:ss'utc'Z in lower case, the -since of lshistory</li>
+ * </ul>
+ */
+public final class DateCodec {
+    public static final long INVALID_DATE = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_SECOND = 1000L;
+    private static final long MILLIS_PER_MINUTE = 60 * MILLIS_PER_SECOND;
+    private static final long MILLIS_PER_DAY    = 24 * 60 * MILLIS_PER_MINUTE;
+
+    private static final int XML_LENGTH          = 24;
+    private static final int NUMERIC_LENGTH      = 15;
+    private static final int NUMERIC_DOT         = 8;
+    private static final String SINCE_UTC        = "utc";
+
+    private static volatile DateCodec local;
+
+    private final TimeZone timeZone;
+    private final String[] months;
+
+    /**
+     * @param timeZone which dates are formatted in and parsed from, when the format hasn't an offset
+     * @param locale for the month names of the since format
+     */
+    public DateCodec(TimeZone timeZone, Locale locale) {
+        // a private copy, such that nobody can change it under our feet
+        this.timeZone = (TimeZone) timeZone.clone();
+
+        String[] shortMonths = new DateFormatSymbols(locale).getShortMonths();
+        this.months = new String[12];
+        for (int i = 0; i < months.length; i++) {
+            months[i] = shortMonths[i].toLowerCase(locale);
+        }
+    }
+
+    /**
+     * @return the codec of the default time zone, with the locale of the properties file
+     */
+    public static DateCodec local() {
+        // a race only creates an extra codec, they are all equal
+        DateCodec ret = local;
+        if (ret == null) {
+            ret = new DateCodec(TimeZone.getDefault(), new Locale(PropUtils.getLocale()));
+            local = ret;
+        }
+        return ret;
+    }
+
+    /**
+     * Forgets the codec of local(), such that it is created with the locale of reloaded properties
+     */
+    static void resetLocal() {
+        local = null;
+    }
+
+    /**
+     * @param props where the time zone and locale are taken from
+     * @return the codec used for -since
+     */
+    public static DateCodec forLshistory(PropSnapshot props) {
+        return new DateCodec(TimeZone.getTimeZone(props.getTimeZone()), new Locale(props.getLocale()));
+    }
+
+    /**
+     * @return true if date1 added with minToAdd minutes is before date2
+     */
+    public static boolean before(Date date1, Date date2, int minToAdd) {
+        return before(date1.getTime(), date2.getTime(), minToAdd);
+    }
+
+    /**
+     * @return true if time1 added with minToAdd minutes is before time2, both in epoch millis
+     */
+    public static boolean before(long time1, long time2, int minToAdd) {
+        return time1 + minToAdd * MILLIS_PER_MINUTE < time2;
+    }
+
+    public String formatXml(Date date) {
+        long millis = date.getTime();
+        int offset  = timeZone.getOffset(millis);
+        StringBuilder sb = new StringBuilder(XML_LENGTH);
+
+        appendLocal(sb, millis + offset);
+        appendOffset(sb, offset);
+        return sb.toString();
+    }
+
+    /**
+     * @return the date, null if date isn't in the xml format
+     */
+    public Date parseXml(String date) {
+        if (date == null || date.length() != XML_LENGTH || date.charAt(4) != '-' || date.charAt(7) != '-' 
+                    || date.charAt(10) != 'T' || date.charAt(13) != ':' || date.charAt(16) != ':') {
+            return null;
+        }
+
+        long local  = toLocal(digits(date, 0, 4), digits(date, 5, 2), digits(date, 8, 2), 
+                              digits(date, 11, 2), digits(date, 14, 2), digits(date, 17, 2));
+        int hours   = digits(date, 20, 2);
+        int minutes = digits(date, 22, 2);
+        char sign   = date.charAt(19);
+
+        if (local == INVALID_DATE || hours < 0 || minutes < 0 || (sign != '+' && sign != '-')) {
+            return null;
+        }
+
+        long offset = (hours * 60 + minutes) * MILLIS_PER_MINUTE;
+        return new Date(local - (sign == '+' ? offset : -offset));
+    }
+
+    /**
+     * @param s holds the date
+     * @param start index of the first character of the date
+     * @param end index after the last character of the date
+     * @return epoch millis, INVALID_DATE if it isn't a numeric date
+     */
+    public long parseNumeric(CharSequence s, int start, int end) {
+        if (end - start != NUMERIC_LENGTH || s.charAt(start + NUMERIC_DOT) != '.') {
+            return INVALID_DATE;
+        }
+
+        long local = toLocal(digits(s, start, 4), digits(s, start + 4, 2), digits(s, start + 6, 2), 
+                             digits(s, start + 9, 2), digits(s, start + 11, 2), digits(s, start + 13, 2));
+
+        if (local == INVALID_DATE) {
+            return INVALID_DATE;
+        }
+
+        // the offset depends on the instant, which depends on the offset, hence a second guess 
+        // is needed around daylight saving transitions
+        int offset = timeZone.getOffset(local - timeZone.getRawOffset());
+        long ret   = local - offset;
+        int actual = timeZone.getOffset(ret);
+
+        return (actual == offset) ? ret : local - actual;
+    }
+
+    public String formatSince(Date date) {
+        long millis = date.getTime();
+        int offset  = timeZone.getOffset(millis);
+        long local  = millis + offset;
+        int[] civil = civilFromDays(floorDiv(local, MILLIS_PER_DAY));
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(civil[2]).append('-').append(months[civil[1] - 1]).append('-');
+        appendPadded(sb, civil[0] % 100, 2);
+        sb.append('.');
+        appendTime(sb, local);
+        sb.append(SINCE_UTC);
+        appendOffset(sb, offset);
+        return sb.toString();
+    }
+
+    private static void appendLocal(StringBuilder sb, long local) {
+        int[] civil = civilFromDays(floorDiv(local, MILLIS_PER_DAY));
+
+        appendPadded(sb, civil[0], 4);
+        sb.append('-');
+        appendPadded(sb, civil[1], 2);
+        sb.append('-');
+        appendPadded(sb, civil[2], 2);
+        sb.append('T');
+        appendTime(sb, local);
+    }
+
+    private static void appendTime(StringBuilder sb, long local) {
+        long ofDay = local - floorDiv(local, MILLIS_PER_DAY) * MILLIS_PER_DAY;
+        long secs  = ofDay / MILLIS_PER_SECOND;
+
+        appendPadded(sb, (int) (secs / 3600), 2);
+        sb.append(':');
+        appendPadded(sb, (int) (secs / 60 % 60), 2);
+        sb.append(':');
+        appendPadded(sb, (int) (secs % 60), 2);
+    }
+
+    private static void appendOffset(StringBuilder sb, int offset) {
+        int minutes = offset / (int) MILLIS_PER_MINUTE;
+
+        sb.append(minutes < 0 ? '-' : '+');
+        minutes = Math.abs(minutes);
+        appendPadded(sb, minutes / 60, 2);
+        appendPadded(sb, minutes % 60, 2);
+    }
+
+    private static void appendPadded(StringBuilder sb, int value, int width) {
+        String s = Integer.toString(value);
+        for (int i = s.length(); i < width; i++) {
+            sb.append('0');
+        }
+        sb.append(s);
+    }
+
+    /**
+     * @return the fields as millis since 1970-01-01T00:00:00 without any offset, INVALID_DATE if
+     *         any field is out of range
+     */
+    private static long toLocal(int year, int month, int day, int hour, int minute, int second) {
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31 
+                     || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID_DATE;
+        }
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY 
+                                   + (hour * 3600L + minute * 60L + second) * MILLIS_PER_SECOND;
+    }
+
+    private static int digits(CharSequence s, int start, int count) {
+        int ret = 0;
+        for (int i = start; i < start + count; i++) {
+            int d = s.charAt(i) - '0';
+            if (d < 0 || d > 9) {
+                return -1;
+            }
+            ret = ret * 10 + d;
+        }
+        return ret;
+    }
+
+    private static long floorDiv(long a, long b) {
+        long q = a / b;
+        return (a % b != 0 && (a < 0) != (b < 0)) ? q - 1 : q;
+    }
+
+    /**
+     * @return days since 1970-01-01 in the proleptic gregorian calendar
+     */
+    private static long daysFromCivil(int year, int month, int day) {
+        int y   = (month <= 2) ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+
+    /**
+     * @return year, month and day of days since 1970-01-01
+     */
+    private static int[] civilFromDays(long days) {
+        long z   = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        int doe  = (int) (z - era * 146097);
+        int yoe  = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy  = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp   = (5 * doy + 2) / 153;
+        int day  = doy - (153 * mp + 2) / 5 + 1;
+        int mon  = mp < 10 ? mp + 3 : mp - 9;
+        int year = (int) (yoe + era * 400) + (mon <= 2 ? 1 : 0);
+        return new int[] {year, mon, day};
+    }
+}
@@ -24,20 +24,13 @@
 
 package jenkins.plugins.simpleclearcase.util;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 import jenkins.plugins.simpleclearcase.LoadRuleDateMap;
 import jenkins.plugins.simpleclearcase.SimpleClearCaseChangeLogEntry;
 
 public class DateUtil {
-    private final String DATETIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ssZ";
-    private SimpleDateFormat dateFormatter = new SimpleDateFormat(DATETIME_FORMAT, new Locale(PropUtils.getLocale()));
-    
     /**
      * @param entries a list of ChangeLogEntry
      * @return the latest commit date from a entry in entries, if entries is empty 
@@ -61,18 +54,11 @@ public class DateUtil {
     }
 
     public String formatDate(Date date) {
-        return dateFormatter.format(date);
+        return DateCodec.local().formatXml(date);
     }
 
     public Date parseDate(String date) {
-        Date ret;
-
-        try {
-            ret = dateFormatter.parse(date);
-        } catch (ParseException e) {
-            ret = null;
-        }
-        return ret;
+        return DateCodec.local().parseXml(date);
     }
 
     /**
@@ -83,8 +69,10 @@ public class DateUtil {
      */
     public boolean anyDateBefore(LoadRuleDateMap commits,
             Date dateCompare, int minToAdd) {
-        for (Date date : commits.getDates()) {
-            if (before(date, dateCompare, minToAdd) == false) {
+        for (int i = 0; i < commits.size(); i++) {
+            long time = commits.getTime(i);
+            if (time == LoadRuleDateMap.UNKNOWN 
+                              || DateCodec.before(time, dateCompare.getTime(), minToAdd) == false) {
                 return false;
             }
         }
@@ -97,14 +85,6 @@ public class DateUtil {
      * @return true if date1 added with minToAdd minutes is before date2, otherwise false 
      */
     public boolean before(Date date1, Date date2, int minToAdd) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date1);
-        cal.add(Calendar.MINUTE, minToAdd);
-
-        // now date1 is added with the additional minutes
-        date1 = cal.getTime();
-
-        // return the comparison
-        return date1.before(date2);
+        return DateCodec.before(date1, date2, minToAdd);
     }
 }
@@ -1,9 +1,9 @@
 package jenkins.plugins.simpleclearcase.util;
 
-import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.List;
 
+import jenkins.plugins.simpleclearcase.FileElement;
 import jenkins.plugins.simpleclearcase.LoadRuleDateMap;
 import jenkins.plugins.simpleclearcase.SimpleClearCaseChangeLogEntry;
 
@@ -19,24 +19,39 @@ public class ListUtil {
      */
     public static boolean removeEntries(List<SimpleClearCaseChangeLogEntry> entries, 
                                                             LoadRuleDateMap loadRuleMap, List<String> loadRules) {
-        List<SimpleClearCaseChangeLogEntry> entriesToRemove = new ArrayList<SimpleClearCaseChangeLogEntry>();
+        LoadRuleMatcher matcher = new LoadRuleMatcher(loadRules);
+        long[] builtTimes = new long[matcher.getLoadRules().size()];
+        for (int i = 0; i < builtTimes.length; i++) {
+            builtTimes[i] = loadRuleMap.getTime(matcher.getLoadRules().get(i));
+        }
 
+        // the kept entries are moved to the front, in order, and the rest is cut off
+        int kept = 0;
         for (SimpleClearCaseChangeLogEntry entry : entries) {
-            if (entry.getDate() == null) {
-                // unset date means there isn't any duplication
-                continue;
+            // unset date means there isn't any duplication
+            if (entry.getDate() == null || isBuilt(entry, matcher, builtTimes) == false) {
+                entries.set(kept++, entry);
             }
-            
-            //for each entry we have to compare against each load rule
-            for (String loadRule : loadRules) {
-                if (entry.containsPathWithPrefix(loadRule) && 
-                        entry.getDate().compareTo(loadRuleMap.getBuiltTime(loadRule)) == 0) {
-                    entriesToRemove.add(entry); //we add the entry we want to remove later on
-                    break; //found a match for entry, then we skip comparing against other load rules
+        }
+
+        boolean removed = kept < entries.size();
+        entries.subList(kept, entries.size()).clear();
+        return removed;
+    }
+
+    /**
+     * @return true if a load rule prefixing any path of entry was built at the date of entry
+     */
+    private static boolean isBuilt(SimpleClearCaseChangeLogEntry entry, LoadRuleMatcher matcher, 
+                                                                                      long[] builtTimes) {
+        for (FileElement e : entry.getElements()) {
+            for (int rule : matcher.match(e.getNode())) {
+                if (entry.getDate().getTime() == builtTimes[rule]) {
+                    return true;
                 }
             }
         }
-        return entries.removeAll(entriesToRemove);
+        return false;
     }
 
     /**
@@ -45,29 +60,29 @@ public class ListUtil {
      *         specific load rule
      */
     public static LoadRuleDateMap getLatestCommitDates(List<SimpleClearCaseChangeLogEntry> entries, List<String> loadRules) {
-        LoadRuleDateMap ret = new LoadRuleDateMap();
-
-        for (String lr : loadRules) {
-            ret.setBuildTime(lr, getLatestCommitDate(entries, lr));
-        }
-        return ret;
-    }
-
-    /**
-     * @param loadRule
-     * @return the latest commit date from all of the entries who are fetched from load rule 'loadrule'
-     */
-    private static Date getLatestCommitDate(List<SimpleClearCaseChangeLogEntry> entries, String loadRule) {
-        List<SimpleClearCaseChangeLogEntry> prefixedEntries = 
-                new ArrayList<SimpleClearCaseChangeLogEntry>();
+        LoadRuleMatcher matcher = new LoadRuleMatcher(loadRules);
+        long[] latest = new long[matcher.getLoadRules().size()];
+        Arrays.fill(latest, LoadRuleDateMap.UNKNOWN);
 
         for (SimpleClearCaseChangeLogEntry entry : entries) {
-            if (entry.containsPathWithPrefix(loadRule) == true) {
-                prefixedEntries.add(entry);
+            if (entry.getDate() == null) {
+                continue;
             }
-        }
-        return DateUtil.getLatestDate(prefixedEntries);
-    }
+            long date = entry.getDate().getTime();
 
+            for (FileElement e : entry.getElements()) {
+                for (int rule : matcher.match(e.getNode())) {
+                    if (latest[rule] < date) {
+                        latest[rule] = date;
+                    }
+                }
+            }
+        }
 
+        LoadRuleDateMap.Builder ret = new LoadRuleDateMap.Builder();
+        for (int i = 0; i < latest.length; i++) {
+            ret.put(matcher.getLoadRules().get(i), latest[i]);
+        }
+        return ret.build();
+    }
 }
@@ -0,0 +1,154 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase.util;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jenkins.plugins.simpleclearcase.PathNode;
+
+/**
+ * Finds the load rules which prefix a path. The load rules are compiled into a trie of characters, 
+ * and as paths share their directories in the PathTrie every directory is matched once, the 
+ * matches of a path are those of its parent plus the load rules ending in its last piece.
+ * 
+ * A matcher remembers every path it has matched, hence it is meant for one pass over a changelog.
+ */
+public class LoadRuleMatcher {
+    private static final int[] NONE = new int[0];
+
+    private final List<String> loadRules = new ArrayList<String>();
+    private final Node root = new Node();
+    private final Map<PathNode, State> states = new IdentityHashMap<PathNode, State>();
+    private final State initial;
+
+    /**
+     * @param loadRules duplicates are matched once
+     */
+    public LoadRuleMatcher(List<String> loadRules) {
+        for (String loadRule : loadRules) {
+            Node n = root;
+            for (int i = 0; i < loadRule.length(); i++) {
+                n = n.add(loadRule.charAt(i));
+            }
+            if (n.rule < 0) {
+                n.rule = this.loadRules.size();
+                this.loadRules.add(loadRule);
+            }
+        }
+        initial = new State(root, root.rule >= 0 ? new int[] {root.rule} : NONE);
+    }
+
+    /**
+     * @return the distinct load rules, in the order given, indexed as the matches
+     */
+    public List<String> getLoadRules() {
+        return loadRules;
+    }
+
+    /**
+     * @param path
+     * @return the indexes of the load rules which path starts with, shortest first
+     */
+    public int[] match(PathNode path) {
+        return stateOf(path).matches;
+    }
+
+    private State stateOf(PathNode path) {
+        if (path == null) {
+            return initial;
+        }
+
+        State ret = states.get(path);
+        if (ret == null) {
+            State parent = stateOf(path.getParent());
+            Node n = parent.node;
+            int[] matches = parent.matches;
+            String piece = path.getPiece();
+
+            for (int i = 0; i < piece.length() && n != null; i++) {
+                n = n.next(piece.charAt(i));
+                if (n != null && n.rule >= 0) {
+                    int[] grown = new int[matches.length + 1];
+                    System.arraycopy(matches, 0, grown, 0, matches.length);
+                    grown[matches.length] = n.rule;
+                    matches = grown;
+                }
+            }
+
+            ret = (n == parent.node && matches == parent.matches) ? parent : new State(n, matches);
+            states.put(path, ret);
+        }
+        return ret;
+    }
+
+    /**
+     * Where matching a path ended up, node is null once no load rule can match any longer
+     */
+    private static class State {
+        private final Node node;
+        private final int[] matches;
+
+        State(Node node, int[] matches) {
+            this.node    = node;
+            this.matches = matches;
+        }
+    }
+
+    private static class Node {
+        private char[] chars = new char[0];
+        private Node[] nexts = new Node[0];
+        // the index of the load rule ending here, -1 if none
+        private int rule = -1;
+
+        Node next(char c) {
+            for (int i = 0; i < chars.length; i++) {
+                if (chars[i] == c) {
+                    return nexts[i];
+                }
+            }
+            return null;
+        }
+
+        Node add(char c) {
+            Node ret = next(c);
+            if (ret == null) {
+                ret = new Node();
+
+                char[] grownChars = new char[chars.length + 1];
+                Node[] grownNexts = new Node[nexts.length + 1];
+                System.arraycopy(chars, 0, grownChars, 0, chars.length);
+                System.arraycopy(nexts, 0, grownNexts, 0, nexts.length);
+                grownChars[chars.length] = c;
+                grownNexts[nexts.length] = ret;
+                chars = grownChars;
+                nexts = grownNexts;
+            }
+            return ret;
+        }
+    }
+}
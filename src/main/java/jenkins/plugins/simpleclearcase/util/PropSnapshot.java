@@ -0,0 +1,252 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase.util;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * An immutable view of the plugin properties, read once instead of on every use. Values come from 
+ * the properties files, can be overridden globally by system properties with the prefix 
+ * SYSTEM_PREFIX, and per job through withOverrides.
+ */
+public final class PropSnapshot {
+    public static final String LOCALE                            = "Locale";
+    public static final String TIMEZONE                          = "TimeZone";
+    public static final String QUIET_PERIOD                      = "QuietPeriod";
+    public static final String LSHISTORY_LAST_NUM_EVENTS_VALUE   = "LshistoryLastNumEventsValue";
+    public static final String FIRST_FETCH_MAX_CHANGELOG_ENTRIES = "FirstFetchMaximumChangelogEntries";
+    public static final String CHANGELOG_FORMAT                  = "ChangeLogFormat";
+    public static final String CHANGELOG_COMPRESSION             = "ChangeLogCompression";
+    public static final String LSHISTORY_CACHE_SECONDS           = "LshistoryCacheSeconds";
+    public static final String LSHISTORY_CACHE_SIZE              = "LshistoryCacheSize";
+    public static final String ADAPTIVE_POLLING_MAX_MINUTES      = "AdaptivePollingMaxMinutes";
+
+    public static final String CHANGELOG_XML    = "xml";
+    public static final String CHANGELOG_BINARY = "binary";
+
+    public static final String COMPRESSION_NONE    = "none";
+    public static final String COMPRESSION_DEFLATE = "deflate";
+
+    public static final String SYSTEM_PREFIX = "jenkins.plugins.simpleclearcase.";
+
+    // the keys which can be set
+    private static final String[] KEYS = {LOCALE, TIMEZONE, QUIET_PERIOD, LSHISTORY_LAST_NUM_EVENTS_VALUE, 
+                                          FIRST_FETCH_MAX_CHANGELOG_ENTRIES, CHANGELOG_FORMAT, 
+                                          CHANGELOG_COMPRESSION, LSHISTORY_CACHE_SECONDS, LSHISTORY_CACHE_SIZE, 
+                                          ADAPTIVE_POLLING_MAX_MINUTES};
+    // the keys which can't be overridden per job, as they are shared by all jobs
+    private static final String[] GLOBAL_KEYS = {LSHISTORY_CACHE_SIZE};
+
+    private final Map<String, String> values;
+
+    private final String locale;
+    private final String timeZone;
+    private final int quietPeriod;
+    private final int lshistoryLastNumEvents;
+    private final int maxEntriesFromChangeLog;
+    private final boolean binaryChangeLog;
+    private final boolean compressedChangeLog;
+    private final int lshistoryCacheSeconds;
+    private final int lshistoryCacheSize;
+    private final int adaptivePollingMaxMinutes;
+
+    /**
+     * @param values for each key, a missing number is 0, a missing format is xml and a missing 
+     *               compression is none
+     * @throws IllegalArgumentException if a number, the format or the compression can't be parsed
+     */
+    PropSnapshot(Map<String, String> values) {
+        this.values                  = new HashMap<String, String>(values);
+        this.locale                  = values.get(LOCALE);
+        this.timeZone                = values.get(TIMEZONE);
+        this.quietPeriod             = toInt(values, QUIET_PERIOD);
+        this.lshistoryLastNumEvents  = toInt(values, LSHISTORY_LAST_NUM_EVENTS_VALUE);
+        this.maxEntriesFromChangeLog = toInt(values, FIRST_FETCH_MAX_CHANGELOG_ENTRIES);
+        this.binaryChangeLog         = isBinary(values.get(CHANGELOG_FORMAT));
+        this.compressedChangeLog     = isCompressed(values.get(CHANGELOG_COMPRESSION));
+        this.lshistoryCacheSeconds   = toInt(values, LSHISTORY_CACHE_SECONDS);
+        this.lshistoryCacheSize      = toInt(values, LSHISTORY_CACHE_SIZE);
+        this.adaptivePollingMaxMinutes = toInt(values, ADAPTIVE_POLLING_MAX_MINUTES);
+    }
+
+    /**
+     * @param overrides lines of key=value in properties file format, null or empty for none
+     * @return a snapshot with the values in overrides replacing the ones of this snapshot
+     * @throws IllegalArgumentException if overrides has an unknown key, a global key or a value which 
+     *                                  isn't valid
+     */
+    public PropSnapshot withOverrides(String overrides) {
+        if (overrides == null || overrides.trim().isEmpty()) {
+            return this;
+        }
+
+        Properties props = new Properties();
+        try {
+            props.load(new StringReader(overrides));
+        } catch (IOException e) {
+            // a StringReader doesn't throw
+            throw new IllegalArgumentException(e);
+        }
+
+        Map<String, String> merged = new HashMap<String, String>(values);
+        for (String key : props.stringPropertyNames()) {
+            if (isKey(key) == false) {
+                throw new IllegalArgumentException("Unknown property: " + key);
+            }
+            if (isGlobalKey(key) == true) {
+                throw new IllegalArgumentException("Can only be set globally: " + key);
+            }
+            merged.put(key, props.getProperty(key).trim());
+        }
+        return new PropSnapshot(merged);
+    }
+
+    public String getLocale() {
+        return locale;
+    }
+
+    public String getTimeZone() {
+        return timeZone;
+    }
+
+    public int getQuietPeriod() {
+        return quietPeriod;
+    }
+
+    public int getLshistoryLastNumEvents() {
+        return lshistoryLastNumEvents;
+    }
+
+    public int getMaxEntriesFromChangeLog() {
+        return maxEntriesFromChangeLog;
+    }
+
+    /**
+     * @return true if changelogs are written in the binary format, otherwise they are xml
+     */
+    public boolean isBinaryChangeLog() {
+        return binaryChangeLog;
+    }
+
+    /**
+     * @return true if changelogs are written compressed
+     */
+    public boolean isCompressedChangeLog() {
+        return compressedChangeLog;
+    }
+
+    /**
+     * @return how long lshistory results are shared between jobs, 0 if they aren't
+     */
+    public int getLshistoryCacheSeconds() {
+        return lshistoryCacheSeconds;
+    }
+
+    /**
+     * @return the maximum number of lshistory results shared between jobs
+     */
+    public int getLshistoryCacheSize() {
+        return lshistoryCacheSize;
+    }
+
+    /**
+     * @return the longest time a load rule may go without being polled, 0 if every load rule is 
+     *         polled every time
+     */
+    public int getAdaptivePollingMaxMinutes() {
+        return adaptivePollingMaxMinutes;
+    }
+
+    static String[] getKeys() {
+        return KEYS.clone();
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+
+    private static boolean isKey(String key) {
+        for (String k : KEYS) {
+            if (k.equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isGlobalKey(String key) {
+        for (String k : GLOBAL_KEYS) {
+            if (k.equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isBinary(String format) {
+        if (format == null || format.equals(CHANGELOG_XML)) {
+            return false;
+        }
+        if (format.equals(CHANGELOG_BINARY)) {
+            return true;
+        }
+        throw new IllegalArgumentException(CHANGELOG_FORMAT + " must be " + CHANGELOG_XML + " or " 
+                                                                      + CHANGELOG_BINARY + ": " + format);
+    }
+
+    private static boolean isCompressed(String compression) {
+        if (compression == null || compression.equals(COMPRESSION_NONE)) {
+            return false;
+        }
+        if (compression.equals(COMPRESSION_DEFLATE)) {
+            return true;
+        }
+        throw new IllegalArgumentException(CHANGELOG_COMPRESSION + " must be " + COMPRESSION_NONE + " or " 
+                                                                + COMPRESSION_DEFLATE + ": " + compression);
+    }
+
+    private static int toInt(Map<String, String> values, String key) {
+        String value = values.get(key);
+
+        if (value == null) {
+            return 0;
+        }
+
+        try {
+            int ret = Integer.parseInt(value.trim());
+            if (ret < 0) {
+                throw new IllegalArgumentException(key + " cannot be negative: " + value);
+            }
+            return ret;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " isn't a number: " + value);
+        }
+    }
+}
@@ -24,35 +24,102 @@
 
 package jenkins.plugins.simpleclearcase.util;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import jenkins.plugins.simpleclearcase.ClearTool;
 import jenkins.plugins.simpleclearcase.SimpleClearCaseSCM;
 
 import org.jvnet.localizer.ResourceBundleHolder;
 
 public class PropUtils {
-	private static final String LOCALE                            = "Locale";
-	private static final String TIMEZONE                          = "TimeZone";
-	private static final String QUIET_PERIOD                      = "QuietPeriod";
-	private static final String LSHISTORY_LAST_NUM_EVENTS_VALUE   = "LshistoryLastNumEventsValue";
-	private static final String FIRST_FETCH_MAX_CHANGELOG_ENTRIES = "FirstFetchMaximumChangelogEntries";
+	private static final Logger LOGGER = Logger.getLogger(PropUtils.class.getName());
+
+	private static volatile PropSnapshot snapshot;
+	
+	/**
+	 * @return the properties, loaded on first use
+	 */
+	public static PropSnapshot getSnapshot() {
+		PropSnapshot ret = snapshot;
+		if (ret == null) {
+			ret = reload();
+		}
+		return ret;
+	}
+	
+	/**
+	 * Reads the properties files and the system properties again. A system property which isn't 
+	 * valid is logged and the value of the properties file is used instead.
+	 * @return the new snapshot
+	 */
+	public static synchronized PropSnapshot reload() {
+		Map<String, String> values = new HashMap<String, String>();
+		
+		for (String key : PropSnapshot.getKeys()) {
+			String value = fromBundle(key);
+			if (value != null) {
+				values.put(key, value);
+			}
+		}
+		PropSnapshot ret = new PropSnapshot(values);
+		
+		for (String key : PropSnapshot.getKeys()) {
+			String value = System.getProperty(PropSnapshot.SYSTEM_PREFIX + key);
+			if (value == null) {
+				continue;
+			}
+			
+			String previous = values.put(key, value);
+			try {
+				ret = new PropSnapshot(values);
+			} catch (IllegalArgumentException e) {
+				LOGGER.log(Level.WARNING, "Ignoring system property " + PropSnapshot.SYSTEM_PREFIX + key 
+				                                                      + ": " + e.getMessage());
+				if (previous != null) {
+					values.put(key, previous);
+				} else {
+					values.remove(key);
+				}
+			}
+		}
+		snapshot = ret;
+		// the codec of local() holds on to the old locale
+		DateCodec.resetLocal();
+		return ret;
+	}
 	
 	public static String getLocale() {
-		return ResourceBundleHolder.get(SimpleClearCaseSCM.class).format(LOCALE);
+		return getSnapshot().getLocale();
 	}
 	
 	public static String getTimeZone() {
-		return ResourceBundleHolder.get(SimpleClearCaseSCM.class).format(TIMEZONE);
+		return getSnapshot().getTimeZone();
 	}
 	
 	public static int getQuietPeriod() {
-		return Integer.parseInt(ResourceBundleHolder.get(SimpleClearCaseSCM.class).format(QUIET_PERIOD));
+		return getSnapshot().getQuietPeriod();
 	}
 	
 	public static String getLshistoryLastNumEventsValue() {
-		return ResourceBundleHolder.get(ClearTool.class).format(LSHISTORY_LAST_NUM_EVENTS_VALUE);
+		return Integer.toString(getSnapshot().getLshistoryLastNumEvents());
 	}
 	
 	public static int getMaxEntriesFromChangeLog() {
-	    return Integer.parseInt(ResourceBundleHolder.get(SimpleClearCaseSCM.class).format(FIRST_FETCH_MAX_CHANGELOG_ENTRIES));
+	    return getSnapshot().getMaxEntriesFromChangeLog();
+	}
+	
+	private static String fromBundle(String key) {
+		// lshistory settings live with ClearTool, the rest with the SCM
+		Class<?> owner = key.equals(PropSnapshot.LSHISTORY_LAST_NUM_EVENTS_VALUE) ? ClearTool.class 
+		                                                                         : SimpleClearCaseSCM.class;
+		try {
+			return ResourceBundleHolder.get(owner).format(key);
+		} catch (MissingResourceException e) {
+			return null;
+		}
 	}
 }
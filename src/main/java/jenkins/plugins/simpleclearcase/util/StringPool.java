@@ -0,0 +1,75 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Canonical instances of strings which repeat between changelog entries, such as users, operations, 
+ * versions and paths. Unlike String.intern the pool is on the heap and only weakly referenced, so 
+ * strings no longer used by any changelog are collected.
+ */
+public final class StringPool {
+    private static final StringPool GLOBAL = new StringPool();
+
+    // the value refers to the key, weakly such that the key can be collected
+    private final Map<String, WeakReference<String>> pool = new WeakHashMap<String, WeakReference<String>>();
+
+    /**
+     * @return the pool shared by all changelogs
+     */
+    public static StringPool global() {
+        return GLOBAL;
+    }
+
+    /**
+     * @param s
+     * @return the pooled string equal to s, null if s is null
+     */
+    public synchronized String intern(String s) {
+        if (s == null) {
+            return null;
+        }
+
+        WeakReference<String> ref = pool.get(s);
+        String ret = (ref != null) ? ref.get() : null;
+
+        if (ret == null) {
+            // a copy, s may be a substring holding on to all of the line it was cut from
+            ret = new String(s);
+            pool.put(ret, new WeakReference<String>(ret));
+        }
+        return ret;
+    }
+
+    /**
+     * @return the number of strings in the pool, including any not yet collected
+     */
+    public synchronized int size() {
+        return pool.size();
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+public class BinaryChangeLogTest {
+	private static final int ENTRIES = 250;
+	
+	private SimpleClearCaseChangeLogParser parser = new SimpleClearCaseChangeLogParser();
+	
+	private File writeBinary(List<SimpleClearCaseChangeLogEntry> entries) throws IOException {
+		parser.setBinary(true);
+		return ChangeLogFixture.write(parser, entries);
+	}
+	
+	@Test
+	public void testWriteAndRead() throws IOException, ParserConfigurationException, SAXException {
+		List<SimpleClearCaseChangeLogEntry> entries = ChangeLogFixture.entries(ENTRIES);
+		SimpleClearCaseChangeLogEntry special = new SimpleClearCaseChangeLogEntry(null, null, "/main/1", 
+		                                                             null, "rmbranch", "r\u00e4ksm\u00f6rg\u00e5s");
+		special.addPath("top");
+		special.addPath("/vobs/b/");
+		entries.add(special);
+		
+		List<SimpleClearCaseChangeLogEntry> read = parser.readChangeLog(writeBinary(entries));
+		
+		Assert.assertEquals(entries.size(), read.size());
+		for (int i = 0; i < entries.size(); i++) {
+			Assert.assertEquals(entries.get(i).getDate(), read.get(i).getDate());
+			Assert.assertEquals(entries.get(i).getUser(), read.get(i).getUser());
+			Assert.assertEquals(entries.get(i).getVersion(), read.get(i).getVersion());
+			Assert.assertEquals(entries.get(i).getOperation(), read.get(i).getOperation());
+			Assert.assertEquals(entries.get(i).getEventDescription(), read.get(i).getEventDescription());
+			Assert.assertEquals(entries.get(i).getComment(), read.get(i).getComment());
+			Assert.assertEquals(entries.get(i).getAffectedPaths(), read.get(i).getAffectedPaths());
+		}
+	}
+	
+	@Test
+	public void testParseDetectsBinary() throws IOException, SAXException {
+		File file = writeBinary(ChangeLogFixture.entries(ENTRIES));
+		SimpleClearCaseChangeLogSet set = (SimpleClearCaseChangeLogSet) new SimpleClearCaseChangeLogParser()
+		                                                                               .parse(null, file);
+		
+		Assert.assertTrue(BinaryChangeLog.isBinary(file));
+		Assert.assertEquals(ENTRIES, set.size());
+		Assert.assertEquals("/vobs/a/dir1/100", set.getPage(1).get(0).getAffectedPaths().iterator().next());
+		Assert.assertEquals(50, set.getPage(2).size());
+	}
+	
+	@Test
+	public void testEmpty() throws IOException, SAXException {
+		SimpleClearCaseChangeLogSet set = (SimpleClearCaseChangeLogSet) parser.parse(null, 
+		                                         writeBinary(new ArrayList<SimpleClearCaseChangeLogEntry>()));
+		Assert.assertTrue(set.isEmptySet());
+	}
+}
@@ -0,0 +1,128 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+public class ChangeLogFileTest {
+	// enough entries for the changelogs to span several compressed blocks
+	private static final int ENTRIES = 2000;
+
+	private File write(boolean binary, boolean compressed) throws IOException {
+		SimpleClearCaseChangeLogParser parser = new SimpleClearCaseChangeLogParser();
+		parser.setBinary(binary);
+		parser.setCompressed(compressed);
+		return ChangeLogFixture.write(parser, ChangeLogFixture.entries(ENTRIES));
+	}
+
+	private void assertEntries(SimpleClearCaseChangeLogSet set) {
+		Assert.assertEquals(ENTRIES, set.size());
+
+		for (int page = 0; page < set.getPageCount(); page++) {
+			List<SimpleClearCaseChangeLogEntry> entries = set.getPage(page);
+			for (int i = 0; i < entries.size(); i++) {
+				int n = page * set.getPageSize() + i;
+				Assert.assertEquals("<" + n + ">", entries.get(i).getComment());
+				Assert.assertEquals(new Date(n * 1000L), entries.get(i).getDate());
+			}
+		}
+	}
+
+	@Test
+	public void testCompressedXml() throws IOException, SAXException, ParserConfigurationException {
+		File plain      = write(false, false);
+		File compressed = write(false, true);
+
+		Assert.assertTrue(compressed.length() < plain.length() / 4);
+		Assert.assertEquals(plain.length(), ChangeLogFile.open(compressed).length());
+		Assert.assertNotNull(ChangeLogIndex.open(compressed));
+
+		assertEntries((SimpleClearCaseChangeLogSet) new SimpleClearCaseChangeLogParser().parse(null, compressed));
+		Assert.assertEquals(ENTRIES, new SimpleClearCaseChangeLogParser().readChangeLog(compressed).size());
+	}
+
+	@Test
+	public void testCompressedBinary() throws IOException, SAXException {
+		File compressed = write(true, true);
+
+		Assert.assertTrue(BinaryChangeLog.isBinary(compressed));
+		assertEntries((SimpleClearCaseChangeLogSet) new SimpleClearCaseChangeLogParser().parse(null, compressed));
+	}
+
+	@Test
+	public void testOpenAtAnyOffset() throws IOException {
+		byte[] data = new byte[200 * 1000];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i % 251);
+		}
+
+		File file = ChangeLogFixture.tempFile();
+		OutputStream out = ChangeLogFile.create(file, true);
+		out.write(data, 0, 1000);
+		out.write(data, 1000, data.length - 1000);
+		out.close();
+
+		ChangeLogFile changelog = ChangeLogFile.open(file);
+		Assert.assertEquals(data.length, changelog.length());
+
+		// the start, a block boundary, within a block and the last byte
+		long[] offsets = {0, 64 * 1024, 64 * 1024 - 1, 150001, data.length - 1};
+		for (long offset : offsets) {
+			InputStream in = changelog.openAt(offset);
+			try {
+				for (long i = offset; i < data.length; i++) {
+					Assert.assertEquals(data[(int) i] & 0xff, in.read());
+				}
+				Assert.assertEquals(-1, in.read());
+			} finally {
+				in.close();
+			}
+		}
+	}
+
+	@Test
+	public void testEmptyCompressed() throws IOException {
+		File file = ChangeLogFixture.tempFile();
+		ChangeLogFile.create(file, true).close();
+
+		ChangeLogFile changelog = ChangeLogFile.open(file);
+		Assert.assertEquals(0, changelog.length());
+		InputStream in = changelog.openAt(0);
+		Assert.assertEquals(-1, in.read());
+		in.close();
+	}
+}
@@ -0,0 +1,72 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.Assert;
+
+/**
+ * Changelogs shared by the changelog tests, entry i is at i seconds after the epoch, by user i, on 
+ * /vobs/a/dir{i % 3}/i with version /main/i and comment &lt;i&gt;
+ */
+final class ChangeLogFixture {
+	private ChangeLogFixture() {
+	}
+	
+	static List<SimpleClearCaseChangeLogEntry> entries(int count) {
+		List<SimpleClearCaseChangeLogEntry> entries = new ArrayList<SimpleClearCaseChangeLogEntry>(count);
+		for (int i = 0; i < count; i++) {
+			entries.add(new SimpleClearCaseChangeLogEntry(new Date(i * 1000L), "user" + i, 
+			                     "/vobs/a/dir" + i % 3 + "/" + i, "/main/" + i, "create version", "checkin", 
+			                                                                              "<" + i + ">"));
+		}
+		return entries;
+	}
+	
+	/**
+	 * @return an empty file which is deleted on exit, together with its index
+	 */
+	static File tempFile() throws IOException {
+		File file = File.createTempFile("changelog", ".xml");
+		file.deleteOnExit();
+		ChangeLogIndex.indexFileOf(file).deleteOnExit();
+		return file;
+	}
+	
+	/**
+	 * @return a temp file with entries written by parser
+	 */
+	static File write(SimpleClearCaseChangeLogParser parser, 
+	                                         List<SimpleClearCaseChangeLogEntry> entries) throws IOException {
+		File file = tempFile();
+		Assert.assertTrue(parser.writeChangeLog(file, new SimpleClearCaseChangeLogSet(null, entries), null));
+		return file;
+	}
+}
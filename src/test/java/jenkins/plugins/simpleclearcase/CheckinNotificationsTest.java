@@ -0,0 +1,115 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jenkins.plugins.simpleclearcase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class CheckinNotificationsTest {
+    private static final List<String> RULES = Arrays.asList("/vobs/proj/src", "/vobs/proj/doc", "/vobs/other");
+    private static final long UNKNOWN = LoadRuleDateMap.UNKNOWN;
+
+    @Test
+    public void testElementBelowLoadRule() {
+        Assert.assertEquals(Collections.singletonList("/vobs/proj/src"), 
+                            CheckinNotifications.match(RULES, null, null, "/vobs/proj/src/main/a.c", null, UNKNOWN));
+        Assert.assertTrue("A shared prefix isn't below", 
+                          CheckinNotifications.match(RULES, null, null, "/vobs/proj/srcold/a.c", null, UNKNOWN).isEmpty());
+    }
+
+    @Test
+    public void testVobMatchesItsLoadRules() {
+        Assert.assertEquals(Arrays.asList("/vobs/proj/src", "/vobs/proj/doc"), 
+                            CheckinNotifications.match(RULES, null, null, "/vobs/proj/", null, UNKNOWN));
+    }
+
+    @Test
+    public void testTriggerEnvironment() {
+        // what a postop checkin trigger gets in CLEARCASE_PN and CLEARCASE_BRTYPE
+        String pn = "/view/jenkins_view/vobs/other/lib/b.h";
+
+        Assert.assertEquals(Collections.singletonList("/vobs/other"), 
+                            CheckinNotifications.match(RULES, "brtype:dev@/vobs/other", null, pn, "dev", UNKNOWN));
+        Assert.assertEquals(Collections.singletonList("/vobs/other"), 
+                            CheckinNotifications.match(RULES, "", null, pn, "main", UNKNOWN));
+        Assert.assertTrue(CheckinNotifications.match(RULES, "dev", null, pn, "main", UNKNOWN).isEmpty());
+        Assert.assertEquals("/vobs/other/lib", CheckinNotifications.toPath("\\vobs\\other\\lib\\"));
+    }
+
+    @Test
+    public void testBuiltCheckinIsIgnored() {
+        LoadRuleDateMap built = new LoadRuleDateMap.Builder().put("/vobs/other", 2000L).build();
+
+        Assert.assertTrue(CheckinNotifications.match(RULES, null, built, "/vobs/other/a", null, 2000L).isEmpty());
+        Assert.assertEquals(1, CheckinNotifications.match(RULES, null, built, "/vobs/other/a", null, 3000L).size());
+        Assert.assertEquals(1, CheckinNotifications.match(RULES, null, built, "/vobs/other/a", null, UNKNOWN).size());
+    }
+
+    @Test
+    public void testPendingIsTakenOnce() {
+        CheckinNotifications notifications = new CheckinNotifications();
+        notifications.addPending("job", Collections.singletonList("/vobs/other"));
+        notifications.addPending("job", Arrays.asList("/vobs/other", "/vobs/proj/src"));
+
+        Assert.assertEquals(2, notifications.getReceived());
+        Assert.assertEquals(2, notifications.takePending("job").size());
+        Assert.assertTrue(notifications.takePending("job").isEmpty());
+    }
+
+    @Test
+    public void testFailedPollRestoresPending() {
+        CheckinNotifications notifications = new CheckinNotifications();
+        notifications.addPending("job", Collections.singletonList("/vobs/other"));
+
+        Set<String> taken = notifications.takePending("job");
+        // a checkin notified while the poll runs
+        notifications.addPending("job", Collections.singletonList("/vobs/proj/src"));
+        notifications.restorePending("job", taken);
+
+        Assert.assertEquals(2, notifications.getReceived());
+        Assert.assertEquals(2, notifications.takePending("job").size());
+    }
+
+    @Test
+    public void testPendingFollowsJob() {
+        CheckinNotifications notifications = new CheckinNotifications();
+        notifications.addPending("folder/job", Collections.singletonList("/vobs/other"));
+        notifications.addPending("deleted", Collections.singletonList("/vobs/other"));
+
+        notifications.renamePending("folder/job", "folder/renamed");
+        notifications.removePending("deleted");
+
+        Assert.assertTrue(notifications.takePending("folder/job").isEmpty());
+        Assert.assertEquals(1, notifications.takePending("folder/renamed").size());
+        Assert.assertTrue(notifications.takePending("deleted").isEmpty());
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class ClearToolMetricsTest {
+    @Test
+    public void testRecord() {
+        ClearToolMetrics metrics = new ClearToolMetrics();
+        metrics.record("lshistory", TimeUnit.MILLISECONDS.toNanos(5), false, true);
+        metrics.record("lshistory", TimeUnit.MILLISECONDS.toNanos(700), true, true);
+        metrics.record("lsview", TimeUnit.MILLISECONDS.toNanos(20), false, false);
+        metrics.count("lshistory", false);
+
+        ClearToolMetrics.Command lshistory = metrics.getCommand("lshistory");
+        Assert.assertEquals(3, lshistory.getInvocations());
+        Assert.assertEquals(1, lshistory.getFailures());
+        Assert.assertEquals(705, lshistory.getTotalMillis());
+        Assert.assertEquals(700, lshistory.getMaxMillis());
+        Assert.assertEquals(705, metrics.getSetviewMillis());
+        Assert.assertEquals(4, metrics.getInvocations());
+        Assert.assertEquals(1, metrics.getFailures());
+        Assert.assertNull(metrics.getCommand("describe"));
+        Assert.assertEquals("[lshistory, lsview]", Arrays.toString(metrics.getCommands()));
+    }
+
+    @Test
+    public void testHistogram() {
+        ClearToolMetrics metrics = new ClearToolMetrics();
+        long[] millis = {0, 10, 11, 999, 1000, 1001, Long.MAX_VALUE / 2000000};
+
+        for (long m : millis) {
+            metrics.record("describe", TimeUnit.MILLISECONDS.toNanos(m), false, false);
+        }
+        ClearToolMetrics.Command describe = metrics.getCommand("describe");
+        long[] histogram = describe.getHistogram();
+
+        Assert.assertEquals(describe.getHistogramBounds().length + 1, histogram.length);
+        Assert.assertEquals("up to and including 10ms", 2, histogram[0]);
+        Assert.assertEquals(1, histogram[1]);
+        Assert.assertEquals("up to and including 1s", 2, histogram[4]);
+        Assert.assertEquals(1, histogram[5]);
+        Assert.assertEquals("above the last bound", 1, histogram[histogram.length - 1]);
+    }
+
+    @Test
+    public void testCountBytes() throws IOException {
+        ClearToolMetrics metrics = new ClearToolMetrics();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream out = metrics.countBytes(bytes);
+
+        out.write('a');
+        out.write("bcdef".getBytes(), 1, 3);
+        out.close();
+
+        Assert.assertEquals("acde", bytes.toString());
+        Assert.assertEquals(4, metrics.getBytesRead());
+        Assert.assertNull(metrics.countBytes(null));
+    }
+
+    @Test
+    public void testParsedAndFiltered() throws IOException {
+        ClearToolMetrics metrics = new ClearToolMetrics();
+
+        LshistoryProbe probe = new LshistoryProbe(null, true, metrics);
+        probe.write("20110620.154953| |checkin\n20110622.101010| |mkbranch\n".getBytes());
+        probe.close();
+
+        LshistoryParser parser = new LshistoryParser(true, null, new LshistoryParser.Collector(), metrics);
+        parser.parseLine("garbage");
+        parser.finish();
+
+        Assert.assertEquals(1, metrics.getEntriesParsed());
+        Assert.assertEquals(1, metrics.getEntriesFiltered());
+    }
+
+    @Test
+    public void testRegistrationIsReplaced() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(ClearToolMetrics.DOMAIN + ":type=ClearToolMetrics");
+        ObjectName lsview = new ObjectName(ClearToolMetrics.DOMAIN + ":type=ClearToolMetrics,command=\"lsview\"");
+
+        ClearToolMetrics old = new ClearToolMetrics();
+        old.record("lsview", 0, false, false);
+        old.register();
+
+        // as after a reload of the plugin, without the old one being stopped
+        ClearToolMetrics metrics = new ClearToolMetrics();
+        metrics.register();
+        try {
+            Assert.assertEquals(0L, server.getAttribute(name, "Invocations"));
+            Assert.assertFalse("A command of the old metrics isn't there", server.isRegistered(lsview));
+
+            metrics.record("lsview", 0, false, false);
+            Assert.assertEquals(1L, server.getAttribute(lsview, "Invocations"));
+        } finally {
+            metrics.unregister();
+        }
+        Assert.assertFalse(server.isRegistered(name));
+        Assert.assertFalse(server.isRegistered(lsview));
+    }
+
+    @Test
+    public void testJson() {
+        ClearToolMetrics metrics = new ClearToolMetrics();
+        metrics.record("lsview", TimeUnit.MILLISECONDS.toNanos(20), true, false);
+
+        String json = metrics.toJson();
+        Assert.assertTrue(json, json.startsWith("{\"invocations\":1,\"failures\":1,\"bytesRead\":0,"));
+        Assert.assertTrue(json, json.contains("\"commands\":{\"lsview\":{\"invocations\":1,\"failures\":1,"
+                                            + "\"totalMillis\":20,\"maxMillis\":20,\"histogram\":[0,1,0,"));
+        Assert.assertTrue(json, json.endsWith("]}}}"));
+    }
+}
@@ -0,0 +1,295 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import jenkins.plugins.simpleclearcase.util.PropUtils;
+
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import hudson.util.StreamTaskListener;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs ClearTool end to end against FakeClearTool, unix only as ClearTool batches through sh
+ */
+public class ClearToolTest {
+    private static final List<String> RULES = Arrays.asList("/vobs/proj/a", "/vobs/proj/b");
+
+    private final TaskListener listener = new StreamTaskListener(System.out);
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("fakecleartool", "");
+        Assert.assertTrue(dir.delete() && dir.mkdir());
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(ClearTool.EXECUTABLE_PROPERTY);
+        for (File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testLatestCommitDates() throws Exception {
+        if (isUnix() == false) {
+            return;
+        }
+        FakeClearTool fake = new FakeClearTool().entries(20);
+        LoadRuleDateMap map = install(fake, "view", null).getLatestCommitDates(RULES, null);
+
+        for (String loadRule : RULES) {
+            Assert.assertEquals(fake.history(loadRule).get(0).getDate(), map.getBuiltTime(loadRule));
+        }
+    }
+
+    @Test
+    public void testLshistoryLastAndSince() throws Exception {
+        if (isUnix() == false) {
+            return;
+        }
+        FakeClearTool fake = new FakeClearTool().entries(30);
+        ClearTool ct = install(fake, "view", null);
+
+        // without a previous build lshistory is limited by LshistoryLastNumEventsValue
+        List<SimpleClearCaseChangeLogEntry> entries = ct.lshistory(RULES, null);
+        Assert.assertEquals(2 * PropUtils.getSnapshot().getLshistoryLastNumEvents(), entries.size());
+
+        LoadRuleDateMap.Builder since = new LoadRuleDateMap.Builder();
+        for (String loadRule : RULES) {
+            since.put(loadRule, fake.history(loadRule).get(5).getDate());
+        }
+        entries = ct.lshistory(RULES, since.build());
+
+        Assert.assertEquals(12, entries.size());
+        for (SimpleClearCaseChangeLogEntry entry : entries) {
+            Assert.assertTrue(entry.getDate().getTime() >= fake.history(RULES.get(0)).get(5).getDate().getTime() 
+                           || entry.getDate().getTime() >= fake.history(RULES.get(1)).get(5).getDate().getTime());
+        }
+    }
+
+    @Test
+    public void testModesAgree() throws Exception {
+        if (isUnix() == false) {
+            return;
+        }
+        FakeClearTool fake = new FakeClearTool().views("view", "sessions").entries(40);
+        LoadRuleDateMap.Builder since = new LoadRuleDateMap.Builder();
+        for (String loadRule : RULES) {
+            since.put(loadRule, fake.history(loadRule).get(25).getDate());
+        }
+        LoadRuleDateMap sinceMap = since.build();
+
+        ClearTool ct = install(fake, "view", null);
+        LoadRuleDateMap expected = ct.getLatestCommitDates(RULES, sinceMap);
+        int expectedSize = ct.lshistory(RULES, sinceMap).size();
+
+        ClearTool batch = install(fake, "view", null);
+        batch.setBatch(true);
+        ClearTool threads = install(fake, "view", null);
+        threads.setThreads(RULES.size());
+        ClearTool sessions = install(fake, "sessions", null);
+        sessions.setSessions(true);
+
+        for (ClearTool other : Arrays.asList(batch, threads, sessions)) {
+            Assert.assertEquals(expected.toString(), other.getLatestCommitDates(RULES, sinceMap).toString());
+            Assert.assertEquals(expectedSize, other.lshistory(RULES, sinceMap).size());
+        }
+    }
+
+    @Test
+    public void testStatusLineInComment() throws Exception {
+        if (isUnix() == false) {
+            return;
+        }
+        // a session with -status prints the same line after the command
+        FakeClearTool fake = new FakeClearTool().views("comments").entries(10)
+                                                .comment("change %d\nCommand 1 returned status 0");
+        List<SimpleClearCaseChangeLogEntry> expected = install(fake, "comments", null).lshistory(RULES, null);
+
+        ClearTool sessions = install(fake, "comments", null);
+        sessions.setSessions(true);
+
+        // the second time through the same session, which mustn't be left with output of the first
+        for (int i = 0; i < 2; i++) {
+            List<SimpleClearCaseChangeLogEntry> entries = sessions.lshistory(RULES, null);
+            Assert.assertEquals(expected.size(), entries.size());
+            for (int j = 0; j < expected.size(); j++) {
+                Assert.assertEquals(expected.get(j).getComment(), entries.get(j).getComment());
+            }
+        }
+    }
+
+    @Test
+    public void testMissingViewPathAndBranch() throws Exception {
+        if (isUnix() == false) {
+            return;
+        }
+        FakeClearTool fake = new FakeClearTool().branches("main", "dev");
+        ClearTool ct = install(fake, "view", "dev");
+
+        Assert.assertTrue(ct.doesViewExist("view"));
+        Assert.assertFalse(ct.doesViewExist("other"));
+        Assert.assertEquals("/elsewhere/x", ct.findMissingClearCasePath(Arrays.asList("/vobs/proj/a", "/elsewhere/x")));
+        Assert.assertTrue(ct.doesClearCaseBranchExist("/vobs/proj/a"));
+        Assert.assertFalse(install(fake, "view", "nosuch").doesClearCaseBranchExist("/vobs/proj/a"));
+
+        for (SimpleClearCaseChangeLogEntry entry : ct.lshistory(RULES, null)) {
+            Assert.assertTrue(entry.getVersion(), entry.getVersion().startsWith("/main/dev"));
+        }
+    }
+
+    @Test
+    public void testUnknownView() throws Exception {
+        if (isUnix() == false) {
+            return;
+        }
+        FakeClearTool fake = new FakeClearTool();
+        ClearTool sessions = install(fake, "nosuchview", "dev");
+        sessions.setSessions(true);
+
+        // batched through one setview, and one command at a time
+        for (ClearTool ct : Arrays.asList(install(fake, "nosuchview", "dev"), sessions)) {
+            try {
+                ct.findMissingClearCasePath(RULES);
+                Assert.fail("A view which can't be set shouldn't be blamed on a load rule");
+            } catch (IOException e) {
+                Assert.assertTrue(e.getMessage(), e.getMessage().contains("nosuchview"));
+            }
+
+            try {
+                ct.findPathWithoutBranch(RULES);
+                Assert.fail("A view which can't be set shouldn't be blamed on a branch");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testDuplicateLoadRules() throws Exception {
+        if (isUnix() == false) {
+            return;
+        }
+        FakeClearTool fake = new FakeClearTool().entries(10);
+        ClearToolMetrics metrics = new ClearToolMetrics();
+        LshistoryCache cache = new LshistoryCache();
+
+        ClearTool ct = install(fake, "view", null);
+        ct.setMetrics(metrics);
+        ct.setCache(cache);
+        List<SimpleClearCaseChangeLogEntry> entries = ct.lshistory(Arrays.asList(RULES.get(0), RULES.get(0)), null);
+
+        Assert.assertEquals(2 * PropUtils.getSnapshot().getLshistoryLastNumEvents(), entries.size());
+        Assert.assertNotSame("Each load rule gets entries of its own", entries.get(0), entries.get(entries.size() / 2));
+        Assert.assertEquals("A duplicate is fetched once", 1, metrics.getCommand("lshistory").getInvocations());
+        Assert.assertEquals(0, cache.getCoalesced());
+    }
+
+    @Test
+    public void testFailingCleartool() throws Exception {
+        if (isUnix() == false) {
+            return;
+        }
+        try {
+            install(new FakeClearTool().errorRate(1), "view", null).lshistory(RULES, null);
+            Assert.fail("lshistory should fail");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLargeHistory() throws Exception {
+        if (isUnix() == false) {
+            return;
+        }
+        FakeClearTool fake = new FakeClearTool().entries(5000).step(60);
+        LoadRuleDateMap.Builder since = new LoadRuleDateMap.Builder();
+        for (String loadRule : RULES) {
+            since.put(loadRule, fake.history(loadRule).get(4999).getDate());
+        }
+
+        Assert.assertEquals(10000, install(fake, "view", null).lshistory(RULES, since.build()).size());
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        if (isUnix() == false) {
+            return;
+        }
+        FakeClearTool fake = new FakeClearTool().entries(10);
+        ClearToolMetrics metrics = new ClearToolMetrics();
+
+        ClearTool ct = install(fake, "view", null);
+        ct.setMetrics(metrics);
+        ct.doesViewExist("other");
+        ct.lshistory(RULES, null);
+
+        ClearTool batch = install(fake, "view", null);
+        batch.setMetrics(metrics);
+        batch.setBatch(true);
+        batch.lshistory(RULES, null);
+
+        Assert.assertEquals(1, metrics.getCommand("lsview").getFailures());
+        Assert.assertEquals("2 alone and 2 batched", 4, metrics.getCommand("lshistory").getInvocations());
+        Assert.assertEquals(0, metrics.getCommand("lshistory").getFailures());
+        Assert.assertEquals(1, metrics.getCommand("setview").getInvocations());
+        Assert.assertEquals(6, metrics.getInvocations());
+        Assert.assertTrue(metrics.getBytesRead() > 0);
+        Assert.assertEquals(4 * PropUtils.getSnapshot().getLshistoryLastNumEvents(), metrics.getEntriesParsed());
+    }
+
+    /**
+     * @return a ClearTool which runs fake, without sharing results with other tests
+     */
+    private ClearTool install(FakeClearTool fake, String view, String branch) 
+                                                         throws IOException, InterruptedException {
+        System.setProperty(ClearTool.EXECUTABLE_PROPERTY, fake.install(dir).getPath());
+
+        ClearTool ct = new ClearTool(new Launcher.LocalLauncher(listener), listener, null, view, branch, false);
+        ct.setProps(PropUtils.getSnapshot().withOverrides("TimeZone=UTC\nLshistoryCacheSeconds=0"));
+        ct.setCache(new LshistoryCache());
+        return ct;
+    }
+
+    private static boolean isUnix() {
+        return File.pathSeparatorChar == ':';
+    }
+}
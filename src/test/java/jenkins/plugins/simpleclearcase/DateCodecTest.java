@@ -0,0 +1,97 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import jenkins.plugins.simpleclearcase.util.DateCodec;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class DateCodecTest {
+    // includes both sides of daylight saving transitions, and a time which doesn't exist
+    private static final String[] DATES = {"20110620.154953", "19991231.235959", "20000229.120000", 
+                                           "20110327.015959", "20110327.023000", "20111030.023000", 
+                                           "20111030.035959", "19700101.000000", "19691231.235959"};
+    private static final String[] ZONES = {"UTC", "Europe/Stockholm", "America/New_York", "Asia/Kolkata"};
+
+    private SimpleDateFormat format(String pattern, TimeZone tz) {
+        SimpleDateFormat fmt = new SimpleDateFormat(pattern, Locale.ENGLISH);
+        fmt.setTimeZone(tz);
+        return fmt;
+    }
+
+    @Test
+    public void testParseNumeric() throws ParseException {
+        for (String zone : ZONES) {
+            TimeZone tz = TimeZone.getTimeZone(zone);
+            DateCodec codec = new DateCodec(tz, Locale.ENGLISH);
+            SimpleDateFormat fmt = format("yyyyMMdd.HHmmss", tz);
+
+            for (String date : DATES) {
+                Assert.assertEquals(date + " in " + zone, fmt.parse(date).getTime(), 
+                                                               codec.parseNumeric(date, 0, date.length()));
+            }
+        }
+        DateCodec utc = new DateCodec(TimeZone.getTimeZone("UTC"), Locale.ENGLISH);
+        Assert.assertEquals(DateCodec.INVALID_DATE, utc.parseNumeric("2011062x.154953", 0, 15));
+        Assert.assertEquals(DateCodec.INVALID_DATE, utc.parseNumeric("20111320.154953", 0, 15));
+    }
+
+    @Test
+    public void testXmlAndSince() throws ParseException {
+        for (String zone : ZONES) {
+            TimeZone tz = TimeZone.getTimeZone(zone);
+            DateCodec codec = new DateCodec(tz, Locale.ENGLISH);
+            SimpleDateFormat xml = format("yyyy-MM-dd'T'HH:mm:ssZ", tz);
+            SimpleDateFormat since = format("d-MMM-yy.HH:mm:ss'UTC'Z", tz);
+
+            for (String numeric : DATES) {
+                Date date = format("yyyyMMdd.HHmmss", tz).parse(numeric);
+
+                Assert.assertEquals(xml.format(date), codec.formatXml(date));
+                Assert.assertEquals(date, codec.parseXml(xml.format(date)));
+                Assert.assertEquals(since.format(date).toLowerCase(), codec.formatSince(date));
+            }
+        }
+    }
+
+    @Test
+    public void testParseXmlOtherOffset() throws ParseException {
+        DateCodec codec = new DateCodec(TimeZone.getTimeZone("UTC"), Locale.ENGLISH);
+
+        Assert.assertEquals(format("yyyy-MM-dd'T'HH:mm:ssZ", TimeZone.getTimeZone("UTC"))
+                                                              .parse("2011-06-20T15:49:53-0530"), 
+                                                              codec.parseXml("2011-06-20T15:49:53-0530"));
+        Assert.assertNull(codec.parseXml("2011-06-20 15:49:53+0000"));
+        Assert.assertNull(codec.parseXml(null));
+    }
+}
@@ -73,14 +73,15 @@ public class DateUtilTest {
 		
 		cal.add(Calendar.SECOND, 1);
 		
-		LoadRuleDateMap map = new LoadRuleDateMap();
-		map.setBuildTime("/fake/1", cal.getTime());
+		LoadRuleDateMap.Builder builder = new LoadRuleDateMap.Builder();
+		builder.put("/fake/1", cal.getTime());
 		
 		cal.add(Calendar.HOUR, 1);
-		map.setBuildTime("/fake/2/", cal.getTime());
+		builder.put("/fake/2/", cal.getTime());
 
 		cal.add(Calendar.MINUTE, 30);
-		map.setBuildTime("/fake/3", cal.getTime());
+		builder.put("/fake/3", cal.getTime());
+		LoadRuleDateMap map = builder.build();
 		
 		//last date
 		cal.add(Calendar.MINUTE, 1);
@@ -0,0 +1,605 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * A stand-in for cleartool, such that ClearTool can be run end to end without ClearCase. It 
+ * knows lsview, describe, setview -exec, shell, lshistory with -branch, -since, -last and -fmt, 
+ * and -status sessions. Every path below a VOB exists, and lshistory of a path makes up a history of 
+ * the configured size, the same every time, with the newest event at newest and one event every 
+ * step seconds before it. Each command can be delayed by latency and fail at errorRate.
+ * 
+ * install writes a cleartool script which runs this class with the configuration, ClearTool is 
+ * pointed at it through ClearTool.EXECUTABLE_PROPERTY.
+ */
+public class FakeClearTool {
+    private static final String PREFIX = "fake.";
+    private static final String VIEW_ROOT = "CLEARCASE_ROOT";
+    private static final String VIEW_PREFIX = "/view/";
+
+    private static final String NUMERIC_DATE = "yyyyMMdd.HHmmss";
+    private static final String SINCE_DATE   = "d-MMM-yy.HH:mm:ss";
+    private static final String SINCE_UTC    = "utc";
+
+    private final Properties config = new Properties();
+
+    // while running as cleartool
+    private String view;
+    private Random random = new Random();
+    private PrintStream out;
+    private PrintStream err;
+
+    public FakeClearTool() {
+        views("view").vobs("/vobs").entries(100).step(3600).newest(1308737410L).branches("main");
+        comment("change %d");
+        latency(0).errorRate(0);
+    }
+
+    /**
+     * @param views the view tags which exist
+     */
+    public FakeClearTool views(String... views) {
+        return set("views", join(views));
+    }
+
+    /**
+     * @param vobs the paths where elements exist
+     */
+    public FakeClearTool vobs(String... vobs) {
+        return set("vobs", join(vobs));
+    }
+
+    /**
+     * @param entries the number of events in the history of each path
+     */
+    public FakeClearTool entries(int entries) {
+        return set("entries", Integer.toString(entries));
+    }
+
+    /**
+     * @param seconds between two events of a history
+     */
+    public FakeClearTool step(long seconds) {
+        return set("step", Long.toString(seconds));
+    }
+
+    /**
+     * @param seconds since the epoch of the newest event
+     */
+    public FakeClearTool newest(long seconds) {
+        return set("newest", Long.toString(seconds));
+    }
+
+    /**
+     * @param branches which the events of a history are spread over, main is the main branch
+     */
+    public FakeClearTool branches(String... branches) {
+        return set("branches", join(branches));
+    }
+
+    /**
+     * @param format of the comment of a checkin, with the index of the event as %d
+     */
+    public FakeClearTool comment(String format) {
+        return set("comment", format);
+    }
+
+    /**
+     * @param millis that each command sleeps
+     */
+    public FakeClearTool latency(long millis) {
+        return set("latency", Long.toString(millis));
+    }
+
+    /**
+     * @param rate from 0 to 1, how often a command fails
+     */
+    public FakeClearTool errorRate(double rate) {
+        return set("errorRate", Double.toString(rate));
+    }
+
+    /**
+     * @param dir where the script is written
+     * @return the cleartool script, which runs this class with the configuration
+     * @throws IOException
+     */
+    public File install(File dir) throws IOException {
+        File script = new File(dir, "cleartool");
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        String classes = new File(FakeClearTool.class.getProtectionDomain().getCodeSource().getLocation().getPath())
+                                                                                                          .getPath();
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("#!/bin/sh\n");
+        sb.append("exec '").append(java).append("' -cp '").append(classes).append("'");
+        sb.append(" '-D").append(PREFIX).append("self=").append(script.getPath()).append("'");
+        for (Map.Entry<Object, Object> entry : config.entrySet()) {
+            sb.append(" '-D").append(PREFIX).append(entry.getKey()).append('=').append(entry.getValue()).append("'");
+        }
+        sb.append(' ').append(FakeClearTool.class.getName()).append(" \"$@\"\n");
+
+        PrintWriter w = new PrintWriter(new FileOutputStream(script));
+        try {
+            w.print(sb);
+        } finally {
+            w.close();
+        }
+        if (script.setExecutable(true) == false) {
+            throw new IOException("FakeClearTool: couldn't make executable: " + script);
+        }
+        return script;
+    }
+
+    /**
+     * @param path an lshistory path
+     * @return the history of path, newest first, on every branch
+     */
+    public List<Event> history(String path) {
+        int entries   = getInt("entries");
+        long step     = getLong("step") * 1000L;
+        long newest   = getLong("newest") * 1000L;
+        String[] branches = get("branches").split(",");
+        // such that the paths don't all change at the same second
+        long offset   = (path.hashCode() & 0x7fffffff) % step / 1000L * 1000L;
+
+        List<Event> ret = new ArrayList<Event>(entries);
+        for (int i = 0; i < entries; i++) {
+            String branch  = branches[i % branches.length];
+            String version = branch.equals("main") ? "/main/" + (entries - i) : "/main/" + branch + "/" + (entries - i);
+            String file    = path + "/dir" + (i % 7) + "/file" + (i % 13) + ".c";
+            Event e;
+
+            if (i % 10 == 9) {
+                e = new Event(path, version, "create directory version", "checkin", 
+                              "Added file element \"file" + (i % 13) + ".c\".\nAdded directory element \"dir" + (i % 7) + "\".");
+            } else if (i % 17 == 16) {
+                e = new Event(file, version.substring(0, version.lastIndexOf('/')), "create branch", "mkbranch", "");
+            } else {
+                e = new Event(file, version, "create version", "checkin", String.format(get("comment"), i));
+            }
+            e.branch = branch;
+            e.user   = "user" + (i % 5);
+            e.time   = newest - i * step - offset;
+            ret.add(e);
+        }
+        return ret;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        FakeClearTool ct = new FakeClearTool();
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith(PREFIX)) {
+                ct.set(key.substring(PREFIX.length()), System.getProperty(key));
+            }
+        }
+        ct.out = new PrintStream(new BufferedOutputStream(new FileOutputStream(java.io.FileDescriptor.out)));
+        ct.err = System.err;
+
+        String root = System.getenv(VIEW_ROOT);
+        if (root != null && root.startsWith(VIEW_PREFIX)) {
+            ct.view = root.substring(VIEW_PREFIX.length());
+        }
+
+        int status = ct.run(Arrays.asList(args));
+        ct.out.flush();
+        System.exit(status);
+    }
+
+    /**
+     * @param args the cleartool arguments
+     * @return the exit status
+     */
+    int run(List<String> args) throws IOException, InterruptedException {
+        if (args.isEmpty()) {
+            return error("Usage: cleartool command");
+        }
+        String cmd = args.get(0);
+        List<String> rest = args.subList(1, args.size());
+
+        if (cmd.equals("-status")) {
+            return session();
+        }
+        if (cmd.equals("setview")) {
+            return setview(rest);
+        }
+        if (cmd.equals("lsview")) {
+            return lsview(rest);
+        }
+        if (cmd.equals("shell")) {
+            return shell(rest);
+        }
+        if (cmd.equals("describe") || cmd.equals("lshistory")) {
+            Thread.sleep(getLong("latency"));
+            if (random.nextDouble() < getDouble("errorRate")) {
+                return error("Simulated failure of " + cmd);
+            }
+            if (view == null) {
+                return error("Not in a view, " + cmd + " needs a view");
+            }
+            return cmd.equals("describe") ? describe(rest) : lshistory(rest);
+        }
+        return error("Unrecognized command: \"" + cmd + "\"");
+    }
+
+    private int session() throws IOException, InterruptedException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        String line;
+        for (int n = 1; (line = in.readLine()) != null; n++) {
+            if (line.trim().equals("quit")) {
+                break;
+            }
+            int status = run(tokenize(line));
+            out.println("Command " + n + " returned status " + status);
+            out.flush();
+        }
+        return 0;
+    }
+
+    private int setview(List<String> args) throws IOException, InterruptedException {
+        if (args.size() != 3 || args.get(0).equals("-exec") == false) {
+            return error("Usage: setview -exec command view-tag");
+        }
+        String exec = args.get(1);
+        String tag  = args.get(2);
+
+        if (Arrays.asList(get("views").split(",")).contains(tag) == false) {
+            return error("Cannot find view by tag \"" + tag + "\"");
+        }
+
+        // a single command of ours runs here rather than through a shell and another jvm
+        List<String> tokens = (exec.indexOf('\n') < 0) ? tokenize(exec) : null;
+        if (tokens != null && tokens.isEmpty() == false && tokens.get(0).equals(get("self"))) {
+            String previous = view;
+            view = tag;
+            try {
+                return run(tokens.subList(1, tokens.size()));
+            } finally {
+                view = previous;
+            }
+        }
+
+        out.flush();
+        ProcessBuilder pb = new ProcessBuilder("sh", "-c", exec);
+        pb.environment().put(VIEW_ROOT, VIEW_PREFIX + tag);
+        Process p = pb.start();
+        Thread pumpOut = pump(p.getInputStream(), System.out, false);
+        Thread pumpErr = pump(p.getErrorStream(), System.err, false);
+        // stdin may never end, hence it doesn't keep us alive
+        pump(System.in, p.getOutputStream(), true);
+        int status = p.waitFor();
+        pumpOut.join();
+        pumpErr.join();
+        return status;
+    }
+
+    private int shell(List<String> args) throws IOException, InterruptedException {
+        if (args.isEmpty()) {
+            return error("Usage: shell command");
+        }
+        out.flush();
+        ProcessBuilder pb = new ProcessBuilder(args);
+        pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process p = pb.start();
+        p.getOutputStream().close();
+        return p.waitFor();
+    }
+
+    private int lsview(List<String> args) {
+        if (args.size() != 1 || Arrays.asList(get("views").split(",")).contains(args.get(0)) == false) {
+            return error("No matching entries found for view tag \"" + (args.isEmpty() ? "" : args.get(0)) + "\"");
+        }
+        out.println("  " + args.get(0) + "  /views/" + args.get(0) + ".vws");
+        return 0;
+    }
+
+    private int describe(List<String> args) {
+        String path = args.isEmpty() ? "" : args.get(args.size() - 1);
+        if (isInVob(path) == false) {
+            return error("Unable to access \"" + path + "\": No such file or directory.");
+        }
+        out.println("directory version \"" + path + "@@/main/1\"");
+        return 0;
+    }
+
+    private int lshistory(List<String> args) {
+        String branch = null;
+        String format = "%Nd %u %e \"%En@@%Vn\"\\n";
+        long since    = Long.MIN_VALUE;
+        int last      = Integer.MAX_VALUE;
+        String path   = null;
+
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (arg.equals("-branch") && i + 1 < args.size()) {
+                branch = args.get(++i);
+            } else if (arg.equals("-fmt") && i + 1 < args.size()) {
+                format = args.get(++i);
+            } else if (arg.equals("-since") && i + 1 < args.size()) {
+                since = parseSince(args.get(++i));
+                if (since == Long.MIN_VALUE) {
+                    return error("Bad date/time specified: \"" + args.get(i) + "\"");
+                }
+            } else if (arg.equals("-last") && i + 1 < args.size()) {
+                last = Integer.parseInt(args.get(++i));
+            } else if (arg.equals("-recurse") || arg.equals("-nco")) {
+                continue;
+            } else if (arg.startsWith("-")) {
+                return error("Unrecognized option \"" + arg + "\"");
+            } else {
+                path = arg;
+            }
+        }
+
+        if (path == null || isInVob(path) == false) {
+            return error("Unable to access \"" + path + "\": No such file or directory.");
+        }
+        if (branch != null && Arrays.asList(get("branches").split(",")).contains(branch) == false) {
+            return error("Branch type not found: \"" + branch + "\".");
+        }
+
+        int printed = 0;
+        for (Event e : history(path)) {
+            if (printed >= last || e.time < since) {
+                break;
+            }
+            if (branch == null || branch.equals(e.branch)) {
+                out.print(e.format(format));
+                printed++;
+            }
+        }
+        return 0;
+    }
+
+    private boolean isInVob(String path) {
+        for (String vob : get("vobs").split(",")) {
+            if (path.equals(vob) || path.startsWith(vob + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int error(String msg) {
+        out.flush();
+        err.println("cleartool: Error: " + msg);
+        return 1;
+    }
+
+    /**
+     * @return epoch millis of the since date of ClearTool, Long.MIN_VALUE if it can't be parsed
+     */
+    private static long parseSince(String since) {
+        int utc = since.indexOf(SINCE_UTC);
+        SimpleDateFormat format = new SimpleDateFormat(SINCE_DATE, Locale.ENGLISH);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        format.setLenient(false);
+
+        try {
+            long local = format.parse((utc >= 0) ? since.substring(0, utc) : since).getTime();
+            if (utc < 0) {
+                return local;
+            }
+            String offset = since.substring(utc + SINCE_UTC.length());
+            int minutes   = Integer.parseInt(offset.substring(1, 3)) * 60 + Integer.parseInt(offset.substring(3, 5));
+            return local - (offset.charAt(0) == '-' ? -minutes : minutes) * 60000L;
+        } catch (ParseException e) {
+            return Long.MIN_VALUE;
+        } catch (RuntimeException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    /**
+     * Splits a command line as cleartool does, double and single quotes group, nothing is escaped
+     */
+    static List<String> tokenize(String line) {
+        List<String> ret = new ArrayList<String>();
+        StringBuilder sb = null;
+        char quote = 0;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    sb.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                sb = (sb != null) ? sb : new StringBuilder();
+            } else if (Character.isWhitespace(c)) {
+                if (sb != null) {
+                    ret.add(sb.toString());
+                    sb = null;
+                }
+            } else {
+                sb = (sb != null) ? sb : new StringBuilder();
+                sb.append(c);
+            }
+        }
+        if (sb != null) {
+            ret.add(sb.toString());
+        }
+        return ret;
+    }
+
+    private static Thread pump(final InputStream in, final OutputStream out, boolean daemon) {
+        Thread t = new Thread() {
+            @Override
+            public void run() {
+                byte[] buf = new byte[8192];
+                try {
+                    for (int n; (n = in.read(buf)) >= 0;) {
+                        out.write(buf, 0, n);
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    // the process is gone
+                } finally {
+                    if (out != System.out && out != System.err) {
+                        try {
+                            out.close();
+                        } catch (IOException e) {
+                            // already closed
+                        }
+                    }
+                }
+            }
+        };
+        t.setDaemon(daemon);
+        t.start();
+        return t;
+    }
+
+    private FakeClearTool set(String key, String value) {
+        config.setProperty(key, value);
+        return this;
+    }
+
+    private String get(String key) {
+        return config.getProperty(key);
+    }
+
+    private int getInt(String key) {
+        return Integer.parseInt(get(key));
+    }
+
+    private long getLong(String key) {
+        return Long.parseLong(get(key));
+    }
+
+    private double getDouble(String key) {
+        return Double.parseDouble(get(key));
+    }
+
+    private static String join(String... values) {
+        StringBuilder sb = new StringBuilder();
+        for (String value : values) {
+            sb.append((sb.length() > 0) ? "," : "").append(value);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * An event of a made up history
+     */
+    public static class Event {
+        private final String element;
+        private final String version;
+        private final String description;
+        private final String operation;
+        private final String comment;
+        private String branch;
+        private String user;
+        private long time;
+
+        Event(String element, String version, String description, String operation, String comment) {
+            this.element     = element;
+            this.version     = version;
+            this.description = description;
+            this.operation   = operation;
+            this.comment     = comment;
+        }
+
+        public String getElement() {
+            return element;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public String getBranch() {
+            return branch;
+        }
+
+        public Date getDate() {
+            return new Date(time);
+        }
+
+        /**
+         * @param format the -fmt of lshistory
+         */
+        String format(String format) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < format.length(); i++) {
+                char c = format.charAt(i);
+                if (c == '\\' && i + 1 < format.length()) {
+                    char n = format.charAt(++i);
+                    sb.append(n == 'n' ? '\n' : (n == 't' ? '\t' : n));
+                } else if (c == '%' && format.startsWith("%Nd", i)) {
+                    SimpleDateFormat numeric = new SimpleDateFormat(NUMERIC_DATE);
+                    numeric.setTimeZone(TimeZone.getTimeZone("UTC"));
+                    sb.append(numeric.format(new Date(time)));
+                    i += 2;
+                } else if (c == '%' && format.startsWith("%Nc", i)) {
+                    sb.append(comment);
+                    i += 2;
+                } else if (c == '%' && format.startsWith("%En", i)) {
+                    sb.append(element);
+                    i += 2;
+                } else if (c == '%' && format.startsWith("%Vn", i)) {
+                    sb.append(version);
+                    i += 2;
+                } else if (c == '%' && i + 1 < format.length()) {
+                    char d = format.charAt(++i);
+                    sb.append(d == 'u' ? user : d == 'e' ? description : d == 'o' ? operation : d == '%' ? "%" : "");
+                } else {
+                    sb.append(c);
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
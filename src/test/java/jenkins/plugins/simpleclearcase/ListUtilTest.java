@@ -0,0 +1,88 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import jenkins.plugins.simpleclearcase.util.ListUtil;
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class ListUtilTest {
+    private static final List<String> LOAD_RULES = Arrays.asList("/vobs/a", "/vobs/ab", "/vobs/a/sub", 
+                                                                 "/vobs/c", "/vobs/a");
+
+    private List<SimpleClearCaseChangeLogEntry> entries() {
+        List<SimpleClearCaseChangeLogEntry> entries = new ArrayList<SimpleClearCaseChangeLogEntry>();
+        entries.add(entry(1, "/vobs/a/x.java"));
+        entries.add(entry(5, "/vobs/abc/y.java"));
+        entries.add(entry(3, "/vobs/a/sub/z.java"));
+        entries.add(entry(9, "/vobs/other/w.java"));
+        entries.add(entry(2, "/vobs/d/v.java", "/vobs/c/u.java"));
+        entries.add(entry(4, "/vobs/a/sub"));
+        return entries;
+    }
+
+    private SimpleClearCaseChangeLogEntry entry(long date, String... paths) {
+        SimpleClearCaseChangeLogEntry e = new SimpleClearCaseChangeLogEntry(new Date(date), "user", "/main/1", 
+                                                                       "create version", "checkin", "c");
+        for (String path : paths) {
+            e.addPath(path);
+        }
+        return e;
+    }
+
+    @Test
+    public void testGetLatestCommitDates() {
+        LoadRuleDateMap map = ListUtil.getLatestCommitDates(entries(), LOAD_RULES);
+
+        // /vobs/ab prefixes /vobs/abc, just as a string
+        Assert.assertEquals(new Date(5), map.getBuiltTime("/vobs/a"));
+        Assert.assertEquals(new Date(5), map.getBuiltTime("/vobs/ab"));
+        Assert.assertEquals(new Date(4), map.getBuiltTime("/vobs/a/sub"));
+        Assert.assertEquals(new Date(2), map.getBuiltTime("/vobs/c"));
+    }
+
+    @Test
+    public void testRemoveEntries() {
+        LoadRuleDateMap built = new LoadRuleDateMap.Builder().put("/vobs/a/sub", new Date(3))
+                                        .put("/vobs/c", new Date(2)).put("/vobs/ab", new Date(1)).build();
+
+        List<SimpleClearCaseChangeLogEntry> entries = entries();
+        Assert.assertTrue(ListUtil.removeEntries(entries, built, LOAD_RULES));
+
+        Assert.assertEquals(4, entries.size());
+        Assert.assertEquals(new Date(1), entries.get(0).getDate());
+        Assert.assertEquals(new Date(5), entries.get(1).getDate());
+        Assert.assertEquals(new Date(9), entries.get(2).getDate());
+        Assert.assertEquals(new Date(4), entries.get(3).getDate());
+
+        Assert.assertFalse(ListUtil.removeEntries(entries, built, LOAD_RULES));
+    }
+}
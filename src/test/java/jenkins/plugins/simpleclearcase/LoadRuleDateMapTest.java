@@ -0,0 +1,115 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class LoadRuleDateMapTest {
+    private LoadRuleDateMap map(Object... ruleAndTime) {
+        LoadRuleDateMap.Builder b = new LoadRuleDateMap.Builder();
+        for (int i = 0; i < ruleAndTime.length; i += 2) {
+            b.put((String) ruleAndTime[i], (Date) ruleAndTime[i + 1]);
+        }
+        return b.build();
+    }
+
+    @Test
+    public void testBuilder() {
+        LoadRuleDateMap map = map("/vobs/b", new Date(2), "/vobs/a", null, "/vobs/c", new Date(3), 
+                                  "/vobs/b", new Date(4));
+
+        Assert.assertEquals(3, map.size());
+        Assert.assertEquals("/vobs/a", map.getLoadRule(0));
+        Assert.assertNull(map.getBuiltTime("/vobs/a"));
+        Assert.assertEquals(LoadRuleDateMap.UNKNOWN, map.getTime("/vobs/a"));
+        Assert.assertEquals(new Date(4), map.getBuiltTime("/vobs/b"));
+        Assert.assertNull(map.getBuiltTime("/vobs/x"));
+        Assert.assertTrue(new LoadRuleDateMap().isEmpty());
+    }
+
+    @Test
+    public void testIsBefore() {
+        LoadRuleDateMap baseline = map("/vobs/a", new Date(5), "/vobs/b", null, "/vobs/c", new Date(5));
+
+        Assert.assertFalse(baseline.isBefore(map("/vobs/a", new Date(5), "/vobs/c", new Date(4))));
+        Assert.assertTrue(baseline.isBefore(map("/vobs/c", new Date(6))));
+        Assert.assertTrue("An unknown date is before any date", baseline.isBefore(map("/vobs/b", new Date(1))));
+        Assert.assertFalse("Load rules only in compare don't count", baseline.isBefore(map("/vobs/0", 
+                                                                                   new Date(9))));
+        Assert.assertFalse(baseline.isBefore(new LoadRuleDateMap()));
+    }
+
+    @Test
+    public void testMerge() {
+        LoadRuleDateMap a = map("/vobs/a", new Date(5), "/vobs/c", null);
+
+        Assert.assertSame(a, a.merge(map("/vobs/a", new Date(4))));
+        Assert.assertSame(a, a.merge(new LoadRuleDateMap()));
+
+        LoadRuleDateMap merged = a.merge(map("/vobs/b", new Date(1), "/vobs/c", new Date(2)));
+        Assert.assertEquals(3, merged.size());
+        Assert.assertEquals(new Date(5), merged.getBuiltTime("/vobs/a"));
+        Assert.assertEquals(new Date(1), merged.getBuiltTime("/vobs/b"));
+        Assert.assertEquals(new Date(2), merged.getBuiltTime("/vobs/c"));
+
+        LoadRuleDateMap with = a.with("/vobs/a", new Date(7));
+        Assert.assertEquals(new Date(7), with.getBuiltTime("/vobs/a"));
+        Assert.assertEquals(new Date(5), a.getBuiltTime("/vobs/a"));
+    }
+
+    @Test
+    public void testReadResolveOfOlderBuilds() throws Exception {
+        Map<String, Date> old = new HashMap<String, Date>();
+        old.put("/vobs/b", new Date(2));
+        old.put("/vobs/a", null);
+
+        // as XStream would read an older build, with nothing but the map set
+        LoadRuleDateMap read = new LoadRuleDateMap();
+        for (String name : new String[] {"loadRules", "dates"}) {
+            Field f = LoadRuleDateMap.class.getDeclaredField(name);
+            f.setAccessible(true);
+            f.set(read, null);
+        }
+        Field f = LoadRuleDateMap.class.getDeclaredField("map");
+        f.setAccessible(true);
+        f.set(read, old);
+
+        Method readResolve = LoadRuleDateMap.class.getDeclaredMethod("readResolve");
+        readResolve.setAccessible(true);
+        LoadRuleDateMap resolved = (LoadRuleDateMap) readResolve.invoke(read);
+
+        Assert.assertEquals(2, resolved.size());
+        Assert.assertEquals(new Date(2), resolved.getBuiltTime("/vobs/b"));
+        Assert.assertNull(resolved.getBuiltTime("/vobs/a"));
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import hudson.util.ArgumentListBuilder;
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class LshistoryCacheTest {
+    private static final int TTL = 60;
+
+    private LshistoryCache cache = new LshistoryCache();
+
+    private String key(String loadRule) {
+        return LshistoryCache.keyOf("view", true, new ArgumentListBuilder("lshistory", "-nco", loadRule));
+    }
+
+    @Test
+    public void testProbes() {
+        cache.put(key("/vobs/a"), LshistoryCache.Item.probe(new Date(5)), 10);
+        cache.put(key("/vobs/b"), LshistoryCache.Item.probe(null), 10);
+
+        Assert.assertEquals(new Date(5), cache.get(key("/vobs/a"), TTL).getLatest());
+        Assert.assertNotNull("Not finding anything is a result too", cache.get(key("/vobs/b"), TTL));
+        Assert.assertNull(cache.get(key("/vobs/c"), TTL));
+        Assert.assertNull("A result from another view isn't shared", cache.get(
+                LshistoryCache.keyOf("other", true, new ArgumentListBuilder("lshistory", "-nco", "/vobs/a")), TTL));
+        Assert.assertEquals(2, cache.getHits());
+        Assert.assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void testExpiry() {
+        cache.put(key("/vobs/a"), LshistoryCache.Item.probe(new Date(5)), 10);
+
+        Assert.assertNull(cache.get(key("/vobs/a"), 0));
+        Assert.assertNotNull("A result too old for one job is kept for others", cache.get(key("/vobs/a"), TTL));
+
+        cache.put(key("/vobs/b"), LshistoryCache.Item.probe(new Date(5)), 0);
+        Assert.assertEquals("A size of 0 disables the cache", 1, cache.size());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        cache.put(key("/vobs/a"), LshistoryCache.Item.probe(new Date(1)), 2);
+        cache.put(key("/vobs/b"), LshistoryCache.Item.probe(new Date(2)), 2);
+        cache.get(key("/vobs/a"), TTL);
+        cache.put(key("/vobs/c"), LshistoryCache.Item.probe(new Date(3)), 2);
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNotNull(cache.get(key("/vobs/a"), TTL));
+        Assert.assertNull(cache.get(key("/vobs/b"), TTL));
+        Assert.assertNotNull(cache.get(key("/vobs/c"), TTL));
+    }
+
+    @Test
+    public void testEntriesAreCopied() {
+        List<SimpleClearCaseChangeLogEntry> entries = new ArrayList<SimpleClearCaseChangeLogEntry>();
+        entries.add(new SimpleClearCaseChangeLogEntry(new Date(1), "user", "/vobs/a/f", "/main/1", 
+                                                                      "create version", "checkin", "c"));
+        cache.put(key("/vobs/a"), LshistoryCache.Item.entries(entries), 10);
+        entries.get(0).setComment("changed");
+
+        List<SimpleClearCaseChangeLogEntry> first = cache.get(key("/vobs/a"), TTL).getEntries();
+        first.get(0).setUser("other");
+        List<SimpleClearCaseChangeLogEntry> second = cache.get(key("/vobs/a"), TTL).getEntries();
+
+        Assert.assertNotSame(first.get(0), second.get(0));
+        Assert.assertEquals("c", second.get(0).getComment());
+        Assert.assertEquals("user", second.get(0).getUser());
+        Assert.assertEquals("/vobs/a/f", second.get(0).getAffectedPaths().iterator().next());
+        Assert.assertNull(cache.get(key("/vobs/a"), TTL).getLatest());
+    }
+
+    @Test
+    public void testConcurrentFlightsAreCoalesced() throws InterruptedException {
+        final String key = key("/vobs/a");
+        final LshistoryCache.Boarding leader = cache.board(key);
+        final AtomicInteger found = new AtomicInteger();
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    LshistoryCache.Boarding boarding = cache.board(key);
+                    try {
+                        if (boarding.isLeader() == false && new Date(7).equals(boarding.await().getLatest())) {
+                            found.incrementAndGet();
+                        }
+                    } catch (InterruptedException e) {
+                        // not found
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        while (cache.getCoalesced() < threads.length) {
+            Thread.sleep(1);
+        }
+        Assert.assertTrue(leader.isLeader());
+        Assert.assertEquals(1, cache.getInFlight());
+
+        cache.land(leader, LshistoryCache.Item.probe(new Date(7)), 0);
+        for (Thread t : threads) {
+            t.join();
+        }
+
+        Assert.assertEquals(threads.length, found.get());
+        Assert.assertEquals(0, cache.getInFlight());
+        Assert.assertTrue("The next one leads a new flight", cache.board(key).isLeader());
+    }
+
+    @Test
+    public void testFailedFlight() throws InterruptedException {
+        LshistoryCache.Boarding boarding = cache.board(key("/vobs/a"));
+        cache.land(boarding, null, 10);
+
+        Assert.assertNull(boarding.await());
+        Assert.assertEquals("A failure isn't cached", 0, cache.size());
+    }
+
+    @Test
+    public void testSameThreadBoardsTwice() throws InterruptedException {
+        LshistoryCache.Boarding first  = cache.board(key("/vobs/a"));
+        LshistoryCache.Boarding second = cache.board(key("/vobs/a"));
+
+        Assert.assertTrue(first.isLeader());
+        Assert.assertFalse("Leadership doesn't follow the thread", second.isLeader());
+        try {
+            cache.land(second, LshistoryCache.Item.probe(new Date(1)), 10);
+            Assert.fail("Only the leader can land");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        cache.land(first, LshistoryCache.Item.probe(new Date(7)), 10);
+        Assert.assertEquals(new Date(7), second.await().getLatest());
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class LshistoryParserTest {
+    private static final String CHECKIN  = "20110620.154953| |etavsam| |/vobs/a/file.py| |/main/4| "
+                                           + "|create version| |checkin| |fixing newline";
+    private static final String DIR      = "20110621.101010| |bob| |/vobs/a| |/main/2| "
+                                           + "|create directory version| |checkin| |";
+    private static final String MKBRANCH = "20110622.101010| |bob| |/vobs/a/other.py| |/main/dev/0| "
+                                           + "|create branch| |mkbranch| |";
+    private static final String ADDED    = "Added file element \"new.py\".";
+
+    private List<SimpleClearCaseChangeLogEntry> parse(boolean filter, String... lines) throws IOException {
+        LshistoryParser.Collector collector = new LshistoryParser.Collector();
+        OutputStream out = new LshistoryParser(filter, null, collector).asOutputStream();
+
+        for (String line : lines) {
+            out.write((line + "\n").getBytes());
+        }
+        out.close();
+        return collector.getEntries();
+    }
+
+    @Test
+    public void testParseEntry() throws IOException {
+        List<SimpleClearCaseChangeLogEntry> entries = parse(false, CHECKIN);
+
+        Assert.assertEquals("One line should give one entry", 1, entries.size());
+        Assert.assertEquals("etavsam", entries.get(0).getUser());
+        Assert.assertEquals("/main/4", entries.get(0).getVersion());
+        Assert.assertEquals("checkin", entries.get(0).getOperation());
+        Assert.assertEquals("fixing newline", entries.get(0).getComment());
+        Assert.assertTrue(entries.get(0).containsPathWithPrefix("/vobs/a"));
+    }
+
+    @Test
+    public void testAddedElementBelongsToPreviousEntry() throws IOException {
+        List<SimpleClearCaseChangeLogEntry> entries = parse(false, DIR, ADDED, "", CHECKIN);
+
+        Assert.assertEquals(2, entries.size());
+        Assert.assertEquals("Directory entry should have two paths", 2, 
+                                                                entries.get(0).getAffectedPaths().size());
+        Assert.assertEquals(1, entries.get(1).getAffectedPaths().size());
+    }
+
+    @Test
+    public void testFilter() throws IOException {
+        Assert.assertEquals("mkbranch should be filtered", 1, parse(true, MKBRANCH, ADDED, CHECKIN).size());
+        Assert.assertEquals("mkbranch shouldn't be filtered", 2, parse(false, MKBRANCH, CHECKIN).size());
+    }
+
+    @Test
+    public void testUnparsableLine() throws IOException {
+        Assert.assertEquals("Garbage should be skipped", 1, parse(false, "garbage| |line", CHECKIN).size());
+    }
+
+    @Test
+    public void testCommentWithSeparator() throws IOException {
+        List<SimpleClearCaseChangeLogEntry> entries = parse(false, CHECKIN + "| |and more");
+
+        Assert.assertEquals("fixing newline| |and more", entries.get(0).getComment());
+    }
+}
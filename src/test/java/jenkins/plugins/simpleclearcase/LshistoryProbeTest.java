@@ -0,0 +1,84 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.IOException;
+import java.util.Date;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class LshistoryProbeTest {
+    private static final String OLD      = "20110620.154953| |checkin";
+    private static final String NEW      = "20110621.101010| |checkin";
+    private static final String MKBRANCH = "20110622.101010| |mkbranch";
+
+    private LshistoryProbe probe(Date since, boolean filter, String... lines) throws IOException {
+        LshistoryProbe probe = new LshistoryProbe(since, filter);
+
+        for (String line : lines) {
+            probe.write((line + "\n").getBytes());
+        }
+        probe.close();
+        return probe;
+    }
+
+    private Date dateOf(String line) throws IOException {
+        return probe(null, false, line).getLatest();
+    }
+
+    @Test
+    public void testLatest() throws IOException {
+        LshistoryProbe probe = probe(null, false, NEW, OLD);
+
+        Assert.assertTrue("Any event is new without a since date", probe.isFound());
+        Assert.assertEquals(dateOf(NEW), probe.getLatest());
+    }
+
+    @Test
+    public void testNothingNewSince() throws IOException {
+        LshistoryProbe probe = probe(dateOf(NEW), false, NEW, OLD);
+
+        Assert.assertFalse("An event at the since date isn't new", probe.isFound());
+        Assert.assertEquals(dateOf(NEW), probe.getLatest());
+    }
+
+    @Test
+    public void testFilter() throws IOException {
+        Assert.assertFalse("mkbranch should be filtered", probe(dateOf(NEW), true, MKBRANCH, NEW).isFound());
+        Assert.assertTrue("mkbranch shouldn't be filtered", probe(dateOf(NEW), false, MKBRANCH, NEW).isFound());
+        Assert.assertNull("Garbage should be skipped", probe(null, false, "garbage").getLatest());
+    }
+
+    @Test
+    public void testExitWithoutFound() throws InterruptedException, IOException {
+        LshistoryProbe probe = probe(dateOf(NEW), false, OLD);
+        probe.exited(3);
+
+        Assert.assertFalse(probe.awaitFoundOrExit());
+        Assert.assertEquals(3, probe.getExitCode());
+    }
+}
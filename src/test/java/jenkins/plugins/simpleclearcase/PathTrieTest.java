@@ -0,0 +1,90 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class PathTrieTest {
+    private PathTrie trie = new PathTrie();
+
+    @Test
+    public void testPathsAreKeptExactly() {
+        String[] paths = {"/vobs/a/b/c.java", "/vobs/a/b/", "/", "", "top", "C:\\views\\v\\vobs\\a", 
+                          "/vobs/a/b\\mixed", "//double"};
+
+        for (String path : paths) {
+            PathNode node = trie.nodeOf(path);
+            Assert.assertEquals(path, node.getPath());
+            Assert.assertEquals(path.length(), node.length());
+            Assert.assertSame(node, trie.nodeOf(new String(path)));
+            Assert.assertSame(node, trie.find(path));
+        }
+        Assert.assertNull(trie.nodeOf(null));
+        Assert.assertNull(trie.find("/vobs/x"));
+    }
+
+    @Test
+    public void testDirectoriesAreShared() {
+        PathNode c = trie.nodeOf("/vobs/a/b/c.java");
+        PathNode d = trie.nodeOf("/vobs/a/b/d.java");
+
+        Assert.assertSame(c.getParent(), d.getParent());
+        Assert.assertSame(trie.find("/vobs/a/b"), c.getParent());
+        Assert.assertTrue(c.isBelow(trie.find("/vobs/a")));
+        Assert.assertTrue(c.isBelow(c));
+        Assert.assertFalse(c.isBelow(d));
+        Assert.assertFalse(c.getParent().isBelow(c));
+    }
+
+    @Test
+    public void testStartsWith() {
+        String path = "/vobs/abc/def/x.java";
+        PathNode node = trie.nodeOf(path);
+        String[] prefixes = {"", "/", "/v", "/vobs", "/vobs/", "/vobs/ab", "/vobs/abc/def/x.java", 
+                             "/vobs/abc/def/x.javaa", "/vobs/abd", "/vobz/abc", "vobs", "/vobs/abc/d/"};
+
+        for (String prefix : prefixes) {
+            Assert.assertEquals(prefix, path.startsWith(prefix), node.startsWith(prefix));
+        }
+    }
+
+    @Test
+    public void testUnusedNodesAreCollected() throws InterruptedException {
+        for (int i = 0; i < 1000; i++) {
+            trie.nodeOf("/vobs" + i + "/file");
+        }
+
+        PathNode kept = trie.nodeOf("/kept/file");
+        for (int i = 0; i < 50 && trie.roots() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        Assert.assertEquals(1, trie.roots());
+        Assert.assertSame(kept, trie.find("/kept/file"));
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package jenkins.plugins.simpleclearcase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class PollScheduleTest {
+    private static final long MINUTE = 60000L;
+    private static final long HOUR   = 60 * MINUTE;
+    private static final long DAY    = 24 * HOUR;
+    private static final long NOW    = 1000 * DAY;
+
+    private static final String BUSY  = "/vobs/busy";
+    private static final String QUIET = "/vobs/quiet";
+    private static final List<String> RULES = Arrays.asList(BUSY, QUIET);
+
+    @Test
+    public void testEverythingIsDueFirst() {
+        Assert.assertEquals(RULES, new PollSchedule().getDue(RULES, NOW, HOUR));
+        Assert.assertEquals(RULES, PollSchedule.fromHistory(history()).getDue(RULES, NOW, HOUR));
+    }
+
+    @Test
+    public void testQuietRuleIsSkipped() {
+        PollSchedule schedule = PollSchedule.fromHistory(history()).polled(RULES, new LoadRuleDateMap(), NOW);
+
+        // busy changes every ten minutes and is polled after half a minute, quiet every 90 days
+        Assert.assertEquals(Collections.singletonList(BUSY), schedule.getDue(RULES, NOW + MINUTE, 12 * HOUR));
+        Assert.assertTrue(schedule.getInterval(QUIET, NOW) > 12 * HOUR);
+        Assert.assertTrue(schedule.getDue(RULES, NOW + 10000, 12 * HOUR).isEmpty());
+    }
+
+    @Test
+    public void testFullPollAfterMaxInterval() {
+        PollSchedule schedule = PollSchedule.fromHistory(history()).polled(RULES, new LoadRuleDateMap(), NOW);
+
+        schedule = schedule.polled(Collections.singletonList(BUSY), new LoadRuleDateMap(), NOW + 11 * HOUR);
+        Assert.assertEquals(Collections.singletonList(BUSY), schedule.getDue(RULES, NOW + 11 * HOUR + MINUTE, 12 * HOUR));
+        Assert.assertEquals(RULES, schedule.getDue(RULES, NOW + 12 * HOUR, 12 * HOUR));
+        Assert.assertEquals("A clock set back polls everything", RULES, schedule.getDue(RULES, NOW - MINUTE, 12 * HOUR));
+    }
+
+    @Test
+    public void testChangeMakesRuleBusy() {
+        PollSchedule schedule = PollSchedule.fromHistory(history()).polled(RULES, new LoadRuleDateMap(), NOW);
+        long quiet = schedule.getInterval(QUIET, NOW);
+
+        LoadRuleDateMap remote = new LoadRuleDateMap.Builder().put(QUIET, NOW + HOUR).build();
+        schedule = schedule.polled(RULES, remote, NOW + HOUR);
+
+        Assert.assertTrue(schedule.getInterval(QUIET, NOW + HOUR + MINUTE) < quiet);
+        Assert.assertEquals(RULES, schedule.getDue(RULES, NOW + HOUR + MINUTE, 12 * HOUR));
+    }
+
+    @Test
+    public void testUnknownRuleIsPolledAtMaxInterval() {
+        PollSchedule schedule = new PollSchedule().polled(RULES, new LoadRuleDateMap(), NOW);
+
+        Assert.assertEquals(Long.MAX_VALUE, schedule.getInterval(QUIET, NOW));
+        Assert.assertTrue(schedule.getDue(RULES, NOW + HOUR - 1, HOUR).isEmpty());
+        Assert.assertEquals(RULES, schedule.getDue(RULES, NOW + HOUR, HOUR));
+    }
+
+    private static List<LoadRuleDateMap> history() {
+        return Arrays.asList(new LoadRuleDateMap.Builder().put(BUSY, NOW - 10 * MINUTE).put(QUIET, NOW - 90 * DAY).build(),
+                             new LoadRuleDateMap.Builder().put(BUSY, NOW - 20 * MINUTE).put(QUIET, NOW - 180 * DAY).build(),
+                             new LoadRuleDateMap.Builder().put(BUSY, NOW - 30 * MINUTE).build());
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import jenkins.plugins.simpleclearcase.util.DateCodec;
+import jenkins.plugins.simpleclearcase.util.PropSnapshot;
+import jenkins.plugins.simpleclearcase.util.PropUtils;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class PropSnapshotTest {
+
+    @Test
+    public void testSnapshotIsCached() {
+        Assert.assertSame(PropUtils.getSnapshot(), PropUtils.getSnapshot());
+        Assert.assertEquals(10, PropUtils.getSnapshot().getLshistoryLastNumEvents());
+    }
+
+    @Test
+    public void testOverrides() {
+        PropSnapshot global = PropUtils.getSnapshot();
+        PropSnapshot job = global.withOverrides("LshistoryLastNumEventsValue=25\nTimeZone = UTC\n");
+
+        Assert.assertEquals(25, job.getLshistoryLastNumEvents());
+        Assert.assertEquals("UTC", job.getTimeZone());
+        Assert.assertEquals(global.getLocale(), job.getLocale());
+        Assert.assertFalse(global.isCompressedChangeLog());
+        Assert.assertTrue(global.withOverrides("ChangeLogCompression=deflate").isCompressedChangeLog());
+        Assert.assertEquals("Global snapshot shouldn't change", 10, global.getLshistoryLastNumEvents());
+        Assert.assertSame("No overrides should give the same snapshot", global, global.withOverrides(" "));
+    }
+
+    @Test
+    public void testInvalidOverrides() {
+        String[] invalid = {"Unknown=1", "LshistoryLastNumEventsValue=ten", "LshistoryLastNumEventsValue=-1", 
+                            "ChangeLogCompression=gzip", "LshistoryCacheSize=5"};
+
+        for (String overrides : invalid) {
+            try {
+                PropUtils.getSnapshot().withOverrides(overrides);
+                Assert.fail("Should be invalid: " + overrides);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testSystemPropertyOnReload() {
+        System.setProperty(PropSnapshot.SYSTEM_PREFIX + PropSnapshot.LSHISTORY_LAST_NUM_EVENTS_VALUE, "42");
+        try {
+            Assert.assertEquals(42, PropUtils.reload().getLshistoryLastNumEvents());
+        } finally {
+            System.clearProperty(PropSnapshot.SYSTEM_PREFIX + PropSnapshot.LSHISTORY_LAST_NUM_EVENTS_VALUE);
+            PropUtils.reload();
+        }
+    }
+
+    @Test
+    public void testInvalidSystemPropertyOnReload() {
+        int quietPeriod = PropUtils.reload().getQuietPeriod();
+        DateCodec codec = DateCodec.local();
+
+        System.setProperty(PropSnapshot.SYSTEM_PREFIX + PropSnapshot.QUIET_PERIOD, "abc");
+        System.setProperty(PropSnapshot.SYSTEM_PREFIX + PropSnapshot.LSHISTORY_LAST_NUM_EVENTS_VALUE, "42");
+        try {
+            PropSnapshot reloaded = PropUtils.reload();
+
+            Assert.assertEquals("The properties file should be used instead", quietPeriod, reloaded.getQuietPeriod());
+            Assert.assertEquals(42, reloaded.getLshistoryLastNumEvents());
+            Assert.assertSame(reloaded, PropUtils.getSnapshot());
+            Assert.assertNotSame("The local codec should follow a reload", codec, DateCodec.local());
+        } finally {
+            System.clearProperty(PropSnapshot.SYSTEM_PREFIX + PropSnapshot.QUIET_PERIOD);
+            System.clearProperty(PropSnapshot.SYSTEM_PREFIX + PropSnapshot.LSHISTORY_LAST_NUM_EVENTS_VALUE);
+            PropUtils.reload();
+        }
+    }
+}
@@ -62,4 +62,17 @@ public class SimpleClearCaseChangeLogEntryTest {
 		Assert.assertEquals("Fetched username doesn't match", "etavsam", set.getEntries().get(0).getUser());
 	}
 
+	@Test
+	public void testFieldsAreShared() {
+		SimpleClearCaseChangeLogEntry e1 = new SimpleClearCaseChangeLogEntry(null, new String("user"), 
+		                         new String("/vobs/a"), new String("/main/1"), "create version", "checkin", "c1");
+		SimpleClearCaseChangeLogEntry e2 = new SimpleClearCaseChangeLogEntry(null, new String("user"), 
+		                         new String("/vobs/a"), new String("/main/1"), "create version", "checkin", "c2");
+
+		Assert.assertSame(e1.getUser(), e2.getUser());
+		Assert.assertSame(e1.getVersion(), e2.getVersion());
+		Assert.assertTrue(e2.containsPathBelow(PathTrie.global().find("/vobs/a")));
+		Assert.assertNull(new SimpleClearCaseChangeLogEntry(null, null, null, null, null, null).getUser());
+	}
+
 }
@@ -24,11 +24,16 @@
 
 package jenkins.plugins.simpleclearcase;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 
 import org.junit.Test;
 import org.xml.sax.SAXException;
@@ -53,4 +58,55 @@ public class SimpleClearCaseChangeLogParserTest {
 		Assert.assertFalse("SimpleClearCaseChangeLogSet shouldn't be empty", 
 		                                                           readSet(CHANGELOG_SMALL).isEmptySet());
 	}
+	
+	@Test
+	public void testWriteAndRead() throws IOException, ParserConfigurationException, SAXException, 
+	                                                                                 XMLStreamException {
+		List<SimpleClearCaseChangeLogEntry> entries = new ArrayList<SimpleClearCaseChangeLogEntry>();
+		SimpleClearCaseChangeLogEntry entry = new SimpleClearCaseChangeLogEntry(new Date(1308577793000L), 
+		               "etavsam", "/vobs/a/<file>.py", "/main/4", "create version", "checkin", "a & b\u0001");
+		entry.addPath("/vobs/a/other.py");
+		entries.add(entry);
+		entries.add(new SimpleClearCaseChangeLogEntry(new Date(1308577794000L), "bob", "/main/5", 
+		                                                                 "create version", "checkin", null));
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		parser.writeChangeLog(out, entries);
+		List<SimpleClearCaseChangeLogEntry> read = parser.readChangeLog(new ByteArrayInputStream(out.toByteArray()));
+		
+		Assert.assertEquals(2, read.size());
+		Assert.assertEquals(entry.getDate(), read.get(0).getDate());
+		Assert.assertEquals("Control characters should be replaced", "a & b?", read.get(0).getComment());
+		Assert.assertEquals(2, read.get(0).getAffectedPaths().size());
+		Assert.assertTrue(read.get(0).getAffectedPaths().contains("/vobs/a/<file>.py"));
+		Assert.assertEquals("", read.get(1).getComment());
+		Assert.assertTrue(read.get(1).getAffectedPaths().isEmpty());
+	}
+	
+	@Test
+	public void testReadPreview() throws IOException, ParserConfigurationException, SAXException, 
+	                                                                                XMLStreamException {
+		List<SimpleClearCaseChangeLogEntry> entries = new ArrayList<SimpleClearCaseChangeLogEntry>();
+		for (int i = 0; i < 10; i++) {
+			entries.add(new SimpleClearCaseChangeLogEntry(new Date(i * 1000L), "user" + i, "/vobs/a/" + i, 
+			                                            "/main/" + i, "create version", "checkin", ""));
+		}
+		
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		parser.writeChangeLog(out, entries);
+		List<SimpleClearCaseChangeLogEntry> read = parser.readChangeLog(new ByteArrayInputStream(out.toByteArray()), 3);
+		
+		Assert.assertEquals("Only the first entries should be read", 3, read.size());
+		Assert.assertEquals("user2", read.get(2).getUser());
+	}
+	
+	@Test
+	public void testReadMalformed() throws IOException, ParserConfigurationException {
+		try {
+			parser.readChangeLog(new ByteArrayInputStream("<changelog><entry></changelog>".getBytes()));
+			Assert.fail("Malformed changelog should throw");
+		} catch (SAXException e) {
+			// expected
+		}
+	}
 }
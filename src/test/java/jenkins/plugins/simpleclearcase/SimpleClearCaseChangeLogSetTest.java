@@ -0,0 +1,82 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+public class SimpleClearCaseChangeLogSetTest {
+	private static final int ENTRIES = 250;
+	
+	private SimpleClearCaseChangeLogParser parser = new SimpleClearCaseChangeLogParser();
+	
+	private File writeChangeLog() throws IOException {
+		return ChangeLogFixture.write(parser, ChangeLogFixture.entries(ENTRIES));
+	}
+	
+	@Test
+	public void testPages() throws IOException, SAXException {
+		SimpleClearCaseChangeLogSet set = (SimpleClearCaseChangeLogSet) parser.parse(null, writeChangeLog());
+		
+		Assert.assertEquals(ENTRIES, set.size());
+		Assert.assertEquals(3, set.getPageCount());
+		Assert.assertEquals("user100", set.getPage(1).get(0).getUser());
+		Assert.assertEquals("Last page is partial", 50, set.getPage(2).size());
+		Assert.assertEquals("<249>", set.getPage(2).get(49).getComment());
+		Assert.assertTrue(set.getPage(3).isEmpty());
+		Assert.assertEquals(2, set.toPage("7"));
+		Assert.assertEquals(0, set.toPage("garbage"));
+	}
+	
+	@Test
+	public void testIterateAllPages() throws IOException, SAXException {
+		SimpleClearCaseChangeLogSet set = (SimpleClearCaseChangeLogSet) parser.parse(null, writeChangeLog());
+		int i = 0;
+		
+		for (SimpleClearCaseChangeLogEntry entry : set) {
+			Assert.assertEquals("user" + i, entry.getUser());
+			i++;
+		}
+		Assert.assertEquals(ENTRIES, i);
+	}
+	
+	@Test
+	public void testStaleIndexIsIgnored() throws IOException, SAXException {
+		File file = writeChangeLog();
+		FileWriter w = new FileWriter(file, true);
+		w.write("\n");
+		w.close();
+		
+		Assert.assertNull(ChangeLogIndex.open(file));
+		Assert.assertEquals("The whole changelog should be read instead", ENTRIES, 
+		                                      ((SimpleClearCaseChangeLogSet) parser.parse(null, file)).size());
+	}
+}
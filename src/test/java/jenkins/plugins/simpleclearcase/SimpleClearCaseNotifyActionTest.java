@@ -0,0 +1,137 @@
+/**
+ * The MIT License
+ * 
+ * Copyright (c) 2011, Sun Microsystems, Inc., Sam Tavakoli
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package jenkins.plugins.simpleclearcase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import hudson.model.Cause;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class SimpleClearCaseNotifyActionTest {
+    private static final List<String> RULES = Arrays.asList("/vobs/proj/src", "/vobs/other");
+    private static final String PATH = "/vobs/other/a.c";
+
+    @Test
+    public void testPollOrSchedule() {
+        FakeTarget polled    = new FakeTarget("polled", RULES, true, true);
+        FakeTarget scheduled = new FakeTarget("scheduled", RULES, true, false);
+        FakeTarget elsewhere = new FakeTarget("elsewhere", Collections.singletonList("/vobs/proj/src"), true, true);
+        CheckinNotifications notifications = new CheckinNotifications();
+
+        List<String> notified = notify(notifications, polled, scheduled, elsewhere);
+
+        Assert.assertEquals(Arrays.asList("polled", "scheduled"), notified);
+        Assert.assertEquals(1, polled.polls);
+        Assert.assertEquals(Collections.singleton("/vobs/other"), notifications.takePending("polled"));
+        Assert.assertEquals(1, scheduled.schedules);
+        Assert.assertEquals(0, scheduled.polls);
+        Assert.assertEquals(0, elsewhere.polls + elsewhere.schedules);
+    }
+
+    @Test
+    public void testWithoutBuildPermission() {
+        FakeTarget polled    = new FakeTarget("polled", RULES, false, true);
+        FakeTarget scheduled = new FakeTarget("scheduled", RULES, false, false);
+        CheckinNotifications notifications = new CheckinNotifications();
+
+        Assert.assertTrue(notify(notifications, polled, scheduled).isEmpty());
+        Assert.assertEquals(0, polled.polls + polled.schedules + scheduled.polls + scheduled.schedules);
+        Assert.assertTrue(notifications.takePending("polled").isEmpty());
+    }
+
+    @Test
+    public void testOtherScmAndDisabled() {
+        FakeTarget other    = new FakeTarget("other", null, true, true);
+        FakeTarget disabled = new FakeTarget("disabled", RULES, true, true);
+        disabled.disabled = true;
+
+        Assert.assertTrue(notify(new CheckinNotifications(), other, disabled).isEmpty());
+        Assert.assertEquals(0, disabled.polls);
+    }
+
+    private static List<String> notify(CheckinNotifications notifications, FakeTarget... targets) {
+        return SimpleClearCaseNotifyAction.notifyCheckin(Arrays.asList(targets), notifications, PATH, null, 
+                                                                               LoadRuleDateMap.UNKNOWN);
+    }
+
+    private static class FakeTarget implements SimpleClearCaseNotifyAction.Target {
+        private final String name;
+        private final List<String> loadRules;
+        private final boolean canBuild;
+        private final boolean polling;
+        private boolean disabled;
+        private int polls;
+        private int schedules;
+
+        FakeTarget(String name, List<String> loadRules, boolean canBuild, boolean polling) {
+            this.name      = name;
+            this.loadRules = loadRules;
+            this.canBuild  = canBuild;
+            this.polling   = polling;
+        }
+
+        public String getFullName() {
+            return name;
+        }
+
+        public List<String> getLoadRules() {
+            return loadRules;
+        }
+
+        public String getBranch() {
+            return null;
+        }
+
+        public boolean isDisabled() {
+            return disabled;
+        }
+
+        public boolean canBuild() {
+            return canBuild;
+        }
+
+        public LoadRuleDateMap getBuilt() {
+            return null;
+        }
+
+        public boolean isPolling() {
+            return polling;
+        }
+
+        public void poll() {
+            polls++;
+        }
+
+        public void schedule(Cause cause) {
+            Assert.assertTrue(cause instanceof SimpleClearCaseNotifyAction.CheckinCause);
+            schedules++;
+        }
+    }
+}